@@ -2,6 +2,8 @@ package de.webis.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.webis.datastructures.MultiValueLogger;
 import de.webis.datastructures.SingleValueLogger;
 import de.webis.exceptions.InvalidSubscriptionException;
@@ -13,33 +15,72 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * This class retrieves information from several language analysis APIs from Microsoft.
  * All information gathered will be saved on disk. To query results not already contained
- * in the logs, you have to put a valid API subscription key in <code>/conf/subscription.properties</code>
+ * in the logs, you have to put a valid API subscription key in <code>/conf/subscription.properties</code>.
+ * The endpoint of the Web-Language-Model API can be changed there by the property
+ * <code>weblm-api-endpoint</code>, e.g. to a local server implementing the same protocol.
+ * <p>
+ * The logs are shared by all requestors. They are only accessed under a read lock, which
+ * {@link #flush()} and {@link #close()} take exclusively, so they are never closed while
+ * a request thread uses them. The logs are closed when the last open requestor is closed.
  */
 public class MicrosoftAPIRequestor {
 
+    private static final int MAX_CONNECTIONS = 32;
+    private static final int MAX_QUERIES_PER_REQUEST = 100;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String WEBLM_API_ENDPOINT = "https://api.projectoxford.ai/text/weblm/v1.0/";
+
     private HttpClient httpClient;
-    private URI uri;
     private Properties subscriptionKeys;
+    private String webLMEndpoint = WEBLM_API_ENDPOINT;
 
     private static SingleValueLogger jointProbabilityLog;
     private static MultiValueLogger wordBreakCandidatesLog;
     private static MultiValueLogger spellCandidatesLog;
 
+    private static ExecutorService requestExecutor;
+
+    private static final ReadWriteLock logLock = new ReentrantReadWriteLock();
+    private static int numOpen;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
     /**
-     * Class constructor
+     * Class constructor. The underlying http client uses a pooled connection manager,
+     * so a single requestor may be shared by several evaluation threads.
      */
     public MicrosoftAPIRequestor(){
-        httpClient = new DefaultHttpClient();
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+
+        httpClient = new DefaultHttpClient(connectionManager);
+
+        logLock.writeLock().lock();
+
+        try {
+            numOpen++;
+        } finally {
+            logLock.writeLock().unlock();
+        }
 
         try {
             BufferedInputStream stream = new BufferedInputStream(
@@ -48,6 +89,8 @@ public class MicrosoftAPIRequestor {
             subscriptionKeys = new Properties();
             subscriptionKeys.load(stream);
             stream.close();
+
+            webLMEndpoint = subscriptionKeys.getProperty("weblm-api-endpoint", WEBLM_API_ENDPOINT);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -60,98 +103,233 @@ public class MicrosoftAPIRequestor {
      *
      * @param  query word-based n-gram
      * @return       logarithmic probability for the given query
+     * @throws UncheckedIOException if the probability couldn't be requested
      */
     public double getJointProbability(String query){
-        if(jointProbabilityLog == null){
-            jointProbabilityLog = new SingleValueLogger("./data/log/joint-probability/");
+        Double logged = getLoggedJointProbability(query);
+
+        if(logged != null){
+            return logged;
         }
 
-        if(jointProbabilityLog.contains(query)){
-            return jointProbabilityLog.get(query);
+        return requestJointProbabilities(Collections.singletonList(query)).get(query);
+    }
+
+    /**
+     * Asynchronous version of {@link #getJointProbability(String)}. Logged results complete
+     * immediately, otherwise the request is executed by a shared pool of request threads.
+     *
+     * @param  query word-based n-gram
+     * @return       future of the logarithmic probability for the given query
+     */
+    public CompletableFuture<Double> getJointProbabilityAsync(String query){
+        Double logged = getLoggedJointProbability(query);
+
+        if(logged != null){
+            return CompletableFuture.completedFuture(logged);
         }
 
-        Double prob = 0.0;
+        return CompletableFuture.supplyAsync(() -> getJointProbability(query), getRequestExecutor());
+    }
 
-        StringBuilder builder = new StringBuilder();
-        builder.append("{ \"queries\": [ ");
-        builder.append("\"").append(query).append("\"");
-        builder.append("]}");
+    /**
+     * Gets the probabilities of several word-based n-grams. Logged results are taken from
+     * the log, the others are requested together, at most {@value #MAX_QUERIES_PER_REQUEST}
+     * per request, and logged once returned.
+     *
+     * @param  queries word-based n-grams
+     * @return         logarithmic probabilities for the given queries
+     * @throws UncheckedIOException if probabilities of some queries couldn't be requested
+     */
+    public Map<String, Double> getJointProbabilities(Collection<String> queries){
+        Map<String, Double> probabilities = new HashMap<>();
+        List<String> missing = getLoggedJointProbabilities(queries, probabilities);
 
-        try {
-            prob = getJointProbability(new StringEntity(builder.toString()));
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
+        for(int i = 0; i < missing.size(); i += MAX_QUERIES_PER_REQUEST){
+            probabilities.putAll(requestJointProbabilities(
+                    missing.subList(i, Math.min(missing.size(), i + MAX_QUERIES_PER_REQUEST))));
+        }
+
+        return probabilities;
+    }
+
+    /**
+     * Asynchronous version of {@link #getJointProbabilities(Collection)}. If all results are
+     * logged, the future completes immediately, otherwise the requests are executed
+     * concurrently by a shared pool of request threads.
+     *
+     * @param  queries word-based n-grams
+     * @return         future of the logarithmic probabilities for the given queries
+     */
+    public CompletableFuture<Map<String, Double>> getJointProbabilitiesAsync(Collection<String> queries){
+        Map<String, Double> probabilities = new HashMap<>();
+        List<String> missing = getLoggedJointProbabilities(queries, probabilities);
+
+        if(missing.isEmpty()){
+            return CompletableFuture.completedFuture(probabilities);
+        }
+
+        List<CompletableFuture<Map<String, Double>>> requests = new ArrayList<>();
+
+        for(int i = 0; i < missing.size(); i += MAX_QUERIES_PER_REQUEST){
+            List<String> chunk = missing.subList(i, Math.min(missing.size(), i + MAX_QUERIES_PER_REQUEST));
+            requests.add(CompletableFuture.supplyAsync(() -> requestJointProbabilities(chunk), getRequestExecutor()));
         }
 
-        jointProbabilityLog.log(query, prob);
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            for(CompletableFuture<Map<String, Double>> request: requests){
+                probabilities.putAll(request.join());
+            }
 
-        return prob;
+            return probabilities;
+        });
     }
 
     /**
-     * Gets the probability with that the given word-based n-gram occurs
-     * together in the web. Information gets retrieved by
+     * Puts the logged probabilities of the given queries into the given map.
+     * @return distinct queries not logged yet
+     */
+    private List<String> getLoggedJointProbabilities(Collection<String> queries, Map<String, Double> probabilities){
+        return readFromLogs(() -> {
+            SingleValueLogger jointProbabilityLog = getJointProbabilityLog();
+            List<String> missing = new ArrayList<>();
+
+            for(String query: new LinkedHashSet<>(queries)){
+                if(jointProbabilityLog.contains(query)){
+                    probabilities.put(query, jointProbabilityLog.get(query));
+                }
+                else{
+                    missing.add(query);
+                }
+            }
+
+            return missing;
+        });
+    }
+
+    /**
+     * @return logged probability of the query or null if it isn't logged yet
+     */
+    private Double getLoggedJointProbability(String query){
+        return readFromLogs(() -> {
+            SingleValueLogger jointProbabilityLog = getJointProbabilityLog();
+
+            return jointProbabilityLog.contains(query) ? jointProbabilityLog.get(query) : null;
+        });
+    }
+
+    /**
+     * Gets the probabilities with that the given word-based n-grams occur together in the
+     * web and logs them. Queries without a result, e.g. because a request failed, are
+     * requested again, up to {@value #MAX_ATTEMPTS} attempts in total.
+     *
+     * @param  queries word-based n-grams
+     * @return         logarithmic probabilities for the given queries
+     * @throws UncheckedIOException if probabilities of some queries are still missing
+     */
+    private Map<String, Double> requestJointProbabilities(List<String> queries){
+        Map<String, Double> probabilities = new HashMap<>();
+        List<String> missing = queries;
+        IOException error = null;
+
+        for(int attempt = 0; attempt < MAX_ATTEMPTS && !missing.isEmpty(); attempt++){
+            try {
+                Map<String, Double> requested = requestJointProbabilitiesOnce(missing);
+
+                // only returned results are logged, a missing one is never logged as probability 1
+                writeToLogs(() -> getJointProbabilityLog().log(requested));
+                probabilities.putAll(requested);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            List<String> remaining = new ArrayList<>();
+
+            for(String query: missing){
+                if(!probabilities.containsKey(query)){
+                    remaining.add(query);
+                }
+            }
+
+            missing = remaining;
+        }
+
+        if(!missing.isEmpty()){
+            throw new UncheckedIOException(new IOException("No joint probability returned for "+missing.size()
+                    +" of "+queries.size()+" queries, e.g. \""+missing.get(0)+"\"", error));
+        }
+
+        return probabilities;
+    }
+
+    /**
+     * Gets the probabilities with that the given word-based n-grams occur
+     * together in the web by a single request. Information gets retrieved by
      * <a href="https://azure.microsoft.com/en-us/services/cognitive-services/web-language-model/">Microsoft Web-Language-Model API</a>.
      *
-     * @param  requestBody json request body of query
-     * @return             logarithmic probability for the given query
+     * @param  queries word-based n-grams
+     * @return         logarithmic probabilities of the queries a result was returned for
+     * @throws IOException if the request failed
      */
-    private double getJointProbability(StringEntity requestBody){
+    private Map<String, Double> requestJointProbabilitiesOnce(List<String> queries) throws IOException {
+        URI uri;
+
         try {
             URIBuilder builder;
-            builder = new URIBuilder("https://api.projectoxford.ai/text/weblm/v1.0/calculateJointProbability");
+            builder = new URIBuilder(webLMEndpoint + "calculateJointProbability");
             builder.setParameter("model", "query");
             builder.setParameter("order", "5");
 
             uri = builder.build();
         } catch (URISyntaxException e) {
-            e.printStackTrace();
+            throw new IOException(e);
         }
 
-        Double probability = 0.0;
+        Map<String, Double> probabilities = new HashMap<>();
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode requestBody = mapper.createObjectNode();
+        ArrayNode queryNodes = requestBody.putArray("queries");
+
+        for(String query: queries){
+            queryNodes.add(query);
+        }
 
         HttpPost request = new HttpPost(uri);
         request.setHeader("Content-Type", "application/json");
         request.setHeader("Ocp-Apim-Subscription-Key", subscriptionKeys.getProperty("weblm-api-subscription-key"));
+        request.setEntity(new StringEntity(mapper.writeValueAsString(requestBody), "UTF-8"));
 
-        request.setEntity(requestBody);
+        HttpResponse response = httpClient.execute(request);
+        HttpEntity entity = response.getEntity();
 
-        HttpResponse response;
-        try {
-            response = httpClient.execute(request);
+        if(entity == null){
+            return probabilities;
+        }
 
-            HttpEntity entity = response.getEntity();
+        JsonNode node = mapper.readValue(EntityUtils.toString(entity), JsonNode.class);
 
-            if (entity != null) {
-                String results = EntityUtils.toString(entity);
+        if(!node.has("results")){
+            throw new InvalidSubscriptionException(
+                    node.get("error").get("message").toString()
+            );
+        }
 
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode node = mapper.readValue(results, JsonNode.class);
+        Set<String> requested = new HashSet<>(queries);
 
-                if(node.has("results")){
-                    node = node.get("results");
-                    Iterator<JsonNode> iter = node.elements();
+        // results are matched to the queries by their words, not by their position
+        for(JsonNode result: node.get("results")){
+            JsonNode words = result.get("words");
+            JsonNode probability = result.get("probability");
 
-                    if(iter.hasNext()){
-                        probability = iter.next().get("probability").asDouble();
-                    }
-                }
-                else{
-                    close();
-                    throw new InvalidSubscriptionException(
-                            node.get("error").get("message").toString()
-                    );
-                }
+            if(words != null && probability != null && probability.isNumber() && requested.contains(words.asText())){
+                probabilities.put(words.asText(), probability.asDouble());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
 
-
-        return probability;
+        return probabilities;
     }
 
-
     /**
      * Gets possible separations of one word queries. Information gets retrieved by
      * <a href="https://azure.microsoft.com/en-us/services/cognitive-services/web-language-model/">
@@ -161,17 +339,17 @@ public class MicrosoftAPIRequestor {
      * @return              list of possible separations of the given query
      */
     public List<String> getWordBreakCandidates(String query, int maxCandidates){
-        if(wordBreakCandidatesLog == null){
-            wordBreakCandidatesLog = new MultiValueLogger("./data/log/word-break-candidates/");
-        }
+        List<String> logged = getLoggedWordBreakCandidates(query);
 
-        if(wordBreakCandidatesLog.contains(query)){
-            return wordBreakCandidatesLog.get(query);
+        if(logged != null){
+            return logged;
         }
 
+        URI uri = null;
+
         try {
             URIBuilder builder;
-            builder = new URIBuilder("https://api.projectoxford.ai/text/weblm/v1.0/breakIntoWords");
+            builder = new URIBuilder(webLMEndpoint + "breakIntoWords");
             builder.setParameter("model", "query");
             builder.setParameter("text",query.replaceAll("[ ]+",""));
             builder.setParameter("order", "5");
@@ -209,7 +387,6 @@ public class MicrosoftAPIRequestor {
                     }
                 }
                 else{
-                    close();
                     throw new InvalidSubscriptionException(
                             node.get("error").get("message").toString()
                     );
@@ -219,12 +396,40 @@ public class MicrosoftAPIRequestor {
             e.printStackTrace();
         }
 
-        wordBreakCandidatesLog.log(query, candidates);
+        writeToLogs(() -> getWordBreakCandidatesLog().log(query, candidates));
 
         return candidates;
 
     }
 
+    /**
+     * Asynchronous version of {@link #getWordBreakCandidates(String, int)}. Logged results
+     * complete immediately, otherwise the request is executed by a shared pool of request threads.
+     * @param query         query without whitespaces
+     * @param maxCandidates number of max. suggestions returned
+     * @return              future of the list of possible separations of the given query
+     */
+    public CompletableFuture<List<String>> getWordBreakCandidatesAsync(String query, int maxCandidates){
+        List<String> logged = getLoggedWordBreakCandidates(query);
+
+        if(logged != null){
+            return CompletableFuture.completedFuture(logged);
+        }
+
+        return CompletableFuture.supplyAsync(() -> getWordBreakCandidates(query, maxCandidates), getRequestExecutor());
+    }
+
+    /**
+     * @return logged separations of the query or null if they aren't logged yet
+     */
+    private List<String> getLoggedWordBreakCandidates(String query){
+        return readFromLogs(() -> {
+            MultiValueLogger wordBreakCandidatesLog = getWordBreakCandidatesLog();
+
+            return wordBreakCandidatesLog.contains(query) ? wordBreakCandidatesLog.get(query) : null;
+        });
+    }
+
     /**
      * Gets spell corrections for each term of a query based on
      * <a href="https://azure.microsoft.com/en-us/services/cognitive-services/spell-check/">
@@ -233,25 +438,28 @@ public class MicrosoftAPIRequestor {
      * @return      list of several suggestions for each word in the given query
      */
     public List<List<String>> spell(String query){
-        if(spellCandidatesLog == null){
-            spellCandidatesLog = new MultiValueLogger("./data/log/bing-spellings/");
-        }
-
         List<List<String>> candidates = new ArrayList<>();
         List<String> words = Arrays.asList(query.split("[ ]+"));
-        Integer numFilled = 0;
+        Map<String, List<String>> spellings = new LinkedHashMap<>();
 
-        for(int i = 0 ; i < words.size(); i++){
-            candidates.add(new ArrayList<>());
+        Integer numFilled = readFromLogs(() -> {
+            MultiValueLogger spellCandidatesLog = getSpellCandidatesLog();
+            int filled = 0;
 
-            if(spellCandidatesLog.contains(words.get(i))){
-                candidates.get(i).addAll(new HashSet<>(spellCandidatesLog.get(words.get(i))));
-            }
+            for(int i = 0 ; i < words.size(); i++){
+                candidates.add(new ArrayList<>());
+
+                if(spellCandidatesLog.contains(words.get(i))){
+                    candidates.get(i).addAll(new HashSet<>(spellCandidatesLog.get(words.get(i))));
+                }
 
-            if(!candidates.get(i).isEmpty()){
-               numFilled++;
+                if(!candidates.get(i).isEmpty()){
+                    filled++;
+                }
             }
-        }
+
+            return filled;
+        });
 
         if(numFilled == words.size()){
             return candidates;
@@ -262,7 +470,7 @@ public class MicrosoftAPIRequestor {
             builder = new URIBuilder("https://api.cognitive.microsoft.com/bing/v5.0/spellcheck/");
             builder.setParameter("mode", "spell");
 
-            uri = builder.build();
+            URI uri = builder.build();
 
             HttpPost request = new HttpPost(uri);
             request.setHeader("Content-Type", "application/x-www-form-urlencoded");
@@ -309,11 +517,10 @@ public class MicrosoftAPIRequestor {
                     }
 
 
-                    spellCandidatesLog.log(tokenString, suggestions);
+                    spellings.computeIfAbsent(tokenString, token -> new ArrayList<>()).addAll(suggestions);
                 }
             }
             else{
-                close();
                 if(node.has("message")){
                     throw new InvalidSubscriptionException(
                             node.get("message").toString()
@@ -330,10 +537,18 @@ public class MicrosoftAPIRequestor {
         for(int i = 0; i < candidates.size(); i++){
             if(candidates.get(i).isEmpty()){
                 candidates.get(i).add(words.get(i));
-                spellCandidatesLog.log(words.get(i), words.get(i));
+                spellings.computeIfAbsent(words.get(i), word -> new ArrayList<>()).add(words.get(i));
             }
         }
 
+        writeToLogs(() -> {
+            MultiValueLogger spellCandidatesLog = getSpellCandidatesLog();
+
+            for(Map.Entry<String, List<String>> spelling: spellings.entrySet()){
+                spellCandidatesLog.log(spelling.getKey(), spelling.getValue());
+            }
+        });
+
         try {
             Thread.sleep(150);
         } catch (InterruptedException e) {
@@ -344,26 +559,150 @@ public class MicrosoftAPIRequestor {
     }
 
     /**
-     * All logged results gathered from Microsofts APIs gets flushed to disk.
+     * Gets the terms of the given queries without logged spell candidates. Spelling a query
+     * containing one of them sends a request, the others are served from the log.
+     * @param  queries queries to check spelling
+     * @return         distinct terms not logged yet
+     */
+    public Set<String> getUnloggedSpellTerms(Collection<String> queries){
+        return readFromLogs(() -> {
+            MultiValueLogger spellCandidatesLog = getSpellCandidatesLog();
+            Set<String> unlogged = new HashSet<>();
+
+            for(String query: queries){
+                for(String word: query.split("[ ]+")){
+                    if(!spellCandidatesLog.contains(word) || spellCandidatesLog.get(word).isEmpty()){
+                        unlogged.add(word);
+                    }
+                }
+            }
+
+            return unlogged;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link #spell(String)}, executed by a shared pool of request threads.
+     * @param query query to check spelling
+     * @return      future of the list of several suggestions for each word in the given query
+     */
+    public CompletableFuture<List<List<String>>> spellAsync(String query){
+        return CompletableFuture.supplyAsync(() -> spell(query), getRequestExecutor());
+    }
+
+    private static synchronized SingleValueLogger getJointProbabilityLog(){
+        if(jointProbabilityLog == null){
+            jointProbabilityLog = new SingleValueLogger("./data/log/joint-probability/");
+        }
+
+        return jointProbabilityLog;
+    }
+
+    private static synchronized MultiValueLogger getWordBreakCandidatesLog(){
+        if(wordBreakCandidatesLog == null){
+            wordBreakCandidatesLog = new MultiValueLogger("./data/log/word-break-candidates/");
+        }
+
+        return wordBreakCandidatesLog;
+    }
+
+    private static synchronized MultiValueLogger getSpellCandidatesLog(){
+        if(spellCandidatesLog == null){
+            spellCandidatesLog = new MultiValueLogger("./data/log/bing-spellings/");
+        }
+
+        return spellCandidatesLog;
+    }
+
+    private static synchronized ExecutorService getRequestExecutor(){
+        if(requestExecutor == null){
+            // one thread per pooled connection, daemon threads don't keep the application alive
+            requestExecutor = Executors.newFixedThreadPool(MAX_CONNECTIONS, runnable -> {
+                Thread thread = new Thread(runnable, "microsoft-api-request");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return requestExecutor;
+    }
+
+    /**
+     * Reads from the logs under the shared lock, so they aren't closed meanwhile.
+     */
+    private static <T> T readFromLogs(Supplier<T> action){
+        logLock.readLock().lock();
+
+        try {
+            return action.get();
+        } finally {
+            logLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes to the logs under the shared lock, so they aren't closed meanwhile.
+     */
+    private static void writeToLogs(Runnable action){
+        logLock.readLock().lock();
+
+        try {
+            action.run();
+        } finally {
+            logLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All logged results gathered from Microsofts APIs gets flushed to disk. Waits for
+     * requests currently accessing the logs, the logs are reopened on their next use.
+     */
+    public void flush(){
+        logLock.writeLock().lock();
+
+        try {
+            closeLogs();
+        } finally {
+            logLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes this requestor. The logs are flushed to disk and closed once all requestors
+     * are closed. Closing a requestor more than once has no effect.
      * Needs to be called before closing application to keep the data in consistent state!
      */
     public void close(){
+        if(!closed.compareAndSet(false, true)){
+            return;
+        }
+
+        logLock.writeLock().lock();
+
+        try {
+            if(--numOpen == 0){
+                closeLogs();
+            }
+        } finally {
+            logLock.writeLock().unlock();
+        }
+    }
+
+    private static synchronized void closeLogs(){
         if(jointProbabilityLog != null){
             jointProbabilityLog.close();
             jointProbabilityLog = null;
         }
 
-
         if(wordBreakCandidatesLog != null){
             wordBreakCandidatesLog.close();
             wordBreakCandidatesLog = null;
         }
 
-
         if(spellCandidatesLog != null){
             spellCandidatesLog.close();
             spellCandidatesLog = null;
         }
-
     }
 }
\ No newline at end of file
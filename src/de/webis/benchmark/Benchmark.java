@@ -0,0 +1,140 @@
+package de.webis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Minimal micro benchmark harness. An operation is run for a number of timed warmup
+ * iterations, followed by timed measurement iterations, and the average time per
+ * operation is reported with its standard deviation over the measurement iterations.
+ */
+public class Benchmark {
+    private static final String[] WORDS = {
+            "apple", "banana", "weather", "forecast", "cheap", "flights", "london", "recipe",
+            "chocolate", "cake", "university", "library", "download", "music", "free", "games",
+            "football", "results", "hotel", "reviews", "restaurant", "near", "insurance", "quotes",
+            "pictures", "history", "computer", "science", "tickets", "concert", "movie", "times"
+    };
+
+    private static volatile Object sink;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+
+    /**
+     * Class constructor with 3 warmup and 5 measurement iterations of 1 second each.
+     */
+    public Benchmark(){
+        this(3, 5, 1000);
+    }
+
+    /**
+     * Class constructor.
+     * @param warmupIterations      number of iterations run before measuring
+     * @param measurementIterations number of measured iterations
+     * @param iterationMillis       duration of a single iteration in milliseconds
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, long iterationMillis){
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1000000L;
+    }
+
+    /**
+     * Measure the given operation and print the result.
+     * @param name      name of the benchmark including its parameters
+     * @param operation operation to measure, its result gets consumed to avoid dead code elimination
+     * @return          average time per operation in nanoseconds
+     */
+    public double run(String name, Supplier<?> operation){
+        for(int i = 0; i < warmupIterations; i++){
+            iterate(operation);
+        }
+
+        double[] nanosPerOperation = new double[measurementIterations];
+        double mean = 0.0;
+
+        for(int i = 0; i < measurementIterations; i++){
+            nanosPerOperation[i] = iterate(operation);
+            mean += nanosPerOperation[i] / measurementIterations;
+        }
+
+        double variance = 0.0;
+
+        for(double value: nanosPerOperation){
+            variance += (value - mean) * (value - mean) / Math.max(1, measurementIterations - 1);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-60s %14.1f ns/op  +/- %10.1f",
+                name, mean, Math.sqrt(variance)));
+
+        return mean;
+    }
+
+    private double iterate(Supplier<?> operation){
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do{
+            sink = operation.get();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        }while(elapsed < iterationNanos);
+
+        return (double) elapsed / operations;
+    }
+
+    /**
+     * Generate reproducible queries of common words, some of them misspelled by
+     * a single transposition, deletion or substitution.
+     * @param numQueries     number of queries to generate
+     * @param queryLength    number of terms per query
+     * @param numMisspelled  number of misspelled terms per query
+     * @return               generated queries
+     */
+    public static List<String> generateQueries(int numQueries, int queryLength, int numMisspelled){
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<>(numQueries);
+
+        for(int i = 0; i < numQueries; i++){
+            StringBuilder query = new StringBuilder();
+
+            for(int j = 0; j < queryLength; j++){
+                String word = WORDS[random.nextInt(WORDS.length)];
+
+                if(j < numMisspelled){
+                    word = misspell(word, random);
+                }
+
+                query.append(j == 0 ? "" : " ").append(word);
+            }
+
+            queries.add(query.toString());
+        }
+
+        return queries;
+    }
+
+    private static String misspell(String word, Random random){
+        int position = random.nextInt(word.length() - 1);
+        char[] chars = word.toCharArray();
+
+        switch(random.nextInt(3)){
+            case 0:
+                char tmp = chars[position];
+                chars[position] = chars[position + 1];
+                chars[position + 1] = tmp;
+                return new String(chars);
+            case 1:
+                return word.substring(0, position) + word.substring(position + 1);
+            default:
+                chars[position] = (char)('a' + random.nextInt(26));
+                return new String(chars);
+        }
+    }
+}
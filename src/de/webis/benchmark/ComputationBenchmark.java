@@ -0,0 +1,224 @@
+package de.webis.benchmark;
+
+import de.webis.datastructures.MetricAccumulator;
+import de.webis.datastructures.RankedCandidates;
+import de.webis.datastructures.SpellingResult;
+import de.webis.speller.CandidateEnumerator;
+import de.webis.speller.Speller;
+import de.webis.utils.EditDistance;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * Benchmarks of the local computations of the framework: candidate aggregation and enumeration,
+ * normalization, Levenshtein scoring as done in <code>LueckSpeller.score</code> (compared to
+ * the implementation of commons-lang) and the EF1/Precision@1 measures. All of them are
+ * parameterized by query length and number of misspelled terms.
+ */
+public class ComputationBenchmark {
+    private static final int[] QUERY_LENGTHS = {2, 5, 10};
+    private static final int[] NUM_MISSPELLED = {0, 1, 3};
+    private static final int NUM_QUERIES = 1000;
+
+    private final Benchmark benchmark;
+
+    public ComputationBenchmark(Benchmark benchmark){
+        this.benchmark = benchmark;
+    }
+
+    /**
+     * Run all benchmarks for all parameter combinations.
+     */
+    public void run(){
+        for(int queryLength: QUERY_LENGTHS){
+            for(int numMisspelled: NUM_MISSPELLED){
+                if(numMisspelled > queryLength){
+                    continue;
+                }
+
+                String params = "(length="+queryLength+", misspelled="+numMisspelled+")";
+                List<String> queries = Benchmark.generateQueries(NUM_QUERIES, queryLength, numMisspelled);
+                List<List<List<String>>> candidates = new ArrayList<>(queries.size());
+
+                for(String query: queries){
+                    candidates.add(getCandidates(query, numMisspelled));
+                }
+
+                runAggregation(params, candidates);
+                runNormalization(params, candidates);
+                runLevenshteinScoring(params, queries, candidates);
+                runMeasures(params, queries, candidates);
+            }
+        }
+    }
+
+    private void runAggregation(String params, List<List<List<String>>> candidates){
+        int[] index = {0};
+
+        benchmark.run("aggregateCandidates "+params, () -> {
+            List<List<String>> queryCandidates = candidates.get(index[0]++ % candidates.size());
+            List<String> results = new ArrayList<>();
+            ExposedSpeller.INSTANCE.aggregate(queryCandidates, results, queryCandidates.size());
+            return results;
+        });
+
+        benchmark.run("CandidateEnumerator "+params, () -> {
+            List<List<String>> queryCandidates = candidates.get(index[0]++ % candidates.size());
+            List<String> results = new ArrayList<>();
+            new CandidateEnumerator(queryCandidates, queryCandidates.size(), 100).forEachRemaining(results::add);
+            return results;
+        });
+    }
+
+    private void runNormalization(String params, List<List<List<String>>> candidates){
+        List<Map<String, Double>> confidences = new ArrayList<>(candidates.size());
+
+        for(List<List<String>> queryCandidates: candidates){
+            confidences.add(getConfidences(queryCandidates));
+        }
+
+        int[] index = {0};
+
+        benchmark.run("normalize "+params, () ->
+                ExposedSpeller.INSTANCE.normalizeConfidences(confidences.get(index[0]++ % confidences.size()))
+        );
+
+        List<RankedCandidates> rankedConfidences = new ArrayList<>(confidences.size());
+
+        for(Map<String, Double> queryConfidences: confidences){
+            rankedConfidences.add(RankedCandidates.fromMap(queryConfidences));
+        }
+
+        benchmark.run("RankedCandidates.normalize "+params, () ->
+                rankedConfidences.get(index[0]++ % rankedConfidences.size()).normalize()
+        );
+    }
+
+    private void runLevenshteinScoring(String params, List<String> queries, List<List<List<String>>> candidates){
+        List<List<String>> corrections = new ArrayList<>(candidates.size());
+
+        for(List<List<String>> queryCandidates: candidates){
+            List<String> results = new ArrayList<>();
+            ExposedSpeller.INSTANCE.aggregate(queryCandidates, results, queryCandidates.size());
+            corrections.add(results);
+        }
+
+        int[] index = {0};
+
+        benchmark.run("Levenshtein scoring "+params, () -> {
+            int i = index[0]++ % queries.size();
+            int sum = 0;
+
+            for(String correction: corrections.get(i)){
+                sum += EditDistance.levenshtein(queries.get(i), correction);
+            }
+
+            return sum;
+        });
+
+        benchmark.run("Levenshtein scoring (commons-lang) "+params, () -> {
+            int i = index[0]++ % queries.size();
+            int sum = 0;
+
+            for(String correction: corrections.get(i)){
+                sum += StringUtils.getLevenshteinDistance(queries.get(i), correction);
+            }
+
+            return sum;
+        });
+    }
+
+    private void runMeasures(String params, List<String> queries, List<List<List<String>>> candidates){
+        List<SpellingResult> results = new ArrayList<>(queries.size());
+
+        for(int i = 0; i < queries.size(); i++){
+            Set<String> groundTruth = new LinkedHashSet<>();
+            groundTruth.add(queries.get(i));
+
+            results.add(new SpellingResult(queries.get(i), groundTruth, getConfidences(candidates.get(i))));
+        }
+
+        benchmark.run("SpellingResult.getEF1 ("+NUM_QUERIES+" results) "+params, () ->
+                SpellingResult.getEF1(results)
+        );
+
+        benchmark.run("SpellingResult.getPrecision ("+NUM_QUERIES+" results) "+params, () ->
+                SpellingResult.getPrecision(results)
+        );
+
+        benchmark.run("MetricAccumulator.add ("+NUM_QUERIES+" results) "+params, () -> {
+            MetricAccumulator accumulator = new MetricAccumulator();
+
+            for(SpellingResult result: results){
+                accumulator.add(result);
+            }
+
+            return accumulator;
+        });
+    }
+
+    private static List<List<String>> getCandidates(String query, int numMisspelled){
+        List<List<String>> candidates = new ArrayList<>();
+        String[] terms = query.split(" ");
+
+        for(int i = 0; i < terms.length; i++){
+            if(i < numMisspelled){
+                candidates.add(Arrays.asList(terms[i]+"e", terms[i]+"s", terms[i]));
+            }
+            else{
+                candidates.add(Collections.singletonList(terms[i]));
+            }
+        }
+
+        return candidates;
+    }
+
+    private static Map<String, Double> getConfidences(List<List<String>> candidates){
+        List<String> results = new ArrayList<>();
+        ExposedSpeller.INSTANCE.aggregate(candidates, results, candidates.size());
+
+        Map<String, Double> confidences = new HashMap<>();
+
+        for(int i = 0; i < results.size(); i++){
+            confidences.put(results.get(i), 1.0 / (i + 1));
+        }
+
+        return confidences;
+    }
+
+    /**
+     * Speller exposing the protected helpers of the base class.
+     */
+    private static class ExposedSpeller extends Speller {
+        private static final ExposedSpeller INSTANCE = new ExposedSpeller();
+
+        void aggregate(List<List<String>> candidates, List<String> results, int length){
+            aggregateCandidates(candidates, results, 0, "", length);
+        }
+
+        Map<String, Double> normalizeConfidences(Map<String, Double> confidences){
+            return normalize(confidences);
+        }
+
+        @Override
+        public String getSpellTag() {
+            return "exposed";
+        }
+
+        @Override
+        public Map<String, Double> spell(String query) {
+            return Collections.singletonMap(query, 1.0);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    public static void main(String[] args) {
+        new ComputationBenchmark(new Benchmark()).run();
+    }
+}
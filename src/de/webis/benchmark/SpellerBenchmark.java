@@ -0,0 +1,63 @@
+package de.webis.benchmark;
+
+import de.webis.speller.*;
+
+import java.util.List;
+
+/**
+ * Benchmarks of the <code>spell</code> method of each speller, parameterized by
+ * query length and number of misspelled terms. Remote lookups are served from the
+ * on-disk caches in <code>./data/log/</code>, which get warmed by a first pass over
+ * all benchmark queries, so only the first run needs valid subscription keys.
+ */
+public class SpellerBenchmark {
+    private static final int[] QUERY_LENGTHS = {2, 5, 10};
+    private static final int[] NUM_MISSPELLED = {0, 1, 3};
+    private static final int NUM_QUERIES = 100;
+
+    private final Benchmark benchmark;
+
+    public SpellerBenchmark(Benchmark benchmark){
+        this.benchmark = benchmark;
+    }
+
+    /**
+     * Run the benchmark for a speller and all parameter combinations. The speller gets
+     * closed afterwards.
+     * @param speller speller to benchmark
+     */
+    public void run(Speller speller){
+        for(int queryLength: QUERY_LENGTHS){
+            for(int numMisspelled: NUM_MISSPELLED){
+                if(numMisspelled > queryLength){
+                    continue;
+                }
+
+                List<String> queries = Benchmark.generateQueries(NUM_QUERIES, queryLength, numMisspelled);
+
+                for(String query: queries){
+                    speller.spell(query);
+                }
+
+                speller.flush();
+
+                int[] index = {0};
+
+                benchmark.run(speller.getSpellTag()+".spell (length="+queryLength+", misspelled="+numMisspelled+")",
+                        () -> speller.spell(queries.get(index[0]++ % queries.size()))
+                );
+            }
+        }
+
+        speller.close();
+    }
+
+    public static void main(String[] args) {
+        SpellerBenchmark benchmark = new SpellerBenchmark(new Benchmark());
+
+        benchmark.run(new BaselineSpeller());
+        benchmark.run(new GoogleSpeller());
+        benchmark.run(new BingSpeller());
+        benchmark.run(new LueckSpeller());
+    }
+}
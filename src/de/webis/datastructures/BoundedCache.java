@@ -0,0 +1,208 @@
+package de.webis.datastructures;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A size-bounded in-memory cache with frequency-aware eviction. Entries are kept in
+ * least-recently-used order. Once the cache is full, a new entry only replaces the least
+ * recently used one if its key was requested more often, so rare keys can't flush out
+ * frequent ones. Request frequencies are estimated by a count-min sketch whose counters
+ * get halved periodically, so the frequencies of past requests fade out.
+ * All methods are safe for concurrent use.
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class BoundedCache<K, V> {
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int[] SEEDS = {0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f};
+
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+
+    private final int[][] sketch;
+    private final int sketchMask;
+    private final int sampleSize;
+    private int numIncrements;
+
+    private long hits;
+    private long misses;
+    private long rejections;
+
+    /**
+     * Class constructor.
+     * @param capacity max. number of entries
+     */
+    public BoundedCache(int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+        }
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        int width = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.sketch = new int[SKETCH_DEPTH][width];
+        this.sketchMask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * Get the value of a key and count the request of the key.
+     * @param key key to get the value for
+     * @return    value of the key or null if it isn't cached
+     */
+    public synchronized V get(K key){
+        increment(key);
+        V value = entries.get(key);
+
+        if(value != null){
+            hits++;
+        }
+        else{
+            misses++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Put a value into the cache. If the cache is full and the key is new, the value is
+     * only admitted if its key was requested more often than the least recently used key,
+     * which gets evicted in turn.
+     * @param key   key of the value
+     * @param value value to cache, not null
+     * @return      true if the value got cached
+     */
+    public synchronized boolean put(K key, V value){
+        if(entries.containsKey(key) || entries.size() < capacity){
+            entries.put(key, value);
+            return true;
+        }
+
+        Iterator<K> iterator = entries.keySet().iterator();
+        K victim = iterator.next();
+
+        if(getFrequency(key) <= getFrequency(victim)){
+            rejections++;
+            return false;
+        }
+
+        iterator.remove();
+        entries.put(key, value);
+
+        return true;
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    public int getCapacity(){
+        return capacity;
+    }
+
+    /**
+     * Get the number of requests answered from the cache.
+     * @return number of hits
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Get the number of requests not answered from the cache.
+     * @return number of misses
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Get the number of values not admitted to the full cache.
+     * @return number of rejected values
+     */
+    public synchronized long getRejections(){
+        return rejections;
+    }
+
+    /**
+     * Get the share of requests answered from the cache.
+     * @return hit rate, NaN if there weren't any requests
+     */
+    public synchronized double getHitRate(){
+        return (double) hits / (hits + misses);
+    }
+
+    /**
+     * Pass all entries to the given consumer, from the least to the most recently used one.
+     * @param consumer consumer of the entries
+     */
+    public synchronized void forEach(BiConsumer<? super K, ? super V> consumer){
+        for(Map.Entry<K, V> entry: entries.entrySet()){
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "size: "+entries.size()+"/"+capacity+", hits: "+hits+", misses: "+misses
+                +", rejections: "+rejections;
+    }
+
+    private void increment(K key){
+        int hash = spread(key.hashCode());
+        boolean incremented = false;
+
+        for(int i = 0; i < SKETCH_DEPTH; i++){
+            int index = index(hash, i);
+
+            if(sketch[i][index] < MAX_FREQUENCY){
+                sketch[i][index]++;
+                incremented = true;
+            }
+        }
+
+        if(incremented && ++numIncrements >= sampleSize){
+            age();
+        }
+    }
+
+    private int getFrequency(K key){
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+
+        for(int i = 0; i < SKETCH_DEPTH; i++){
+            frequency = Math.min(frequency, sketch[i][index(hash, i)]);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Halve all counters, so the frequencies of past requests fade out.
+     */
+    private void age(){
+        for(int[] row: sketch){
+            for(int i = 0; i < row.length; i++){
+                row[i] >>>= 1;
+            }
+        }
+
+        numIncrements /= 2;
+    }
+
+    private int index(int hash, int row){
+        int h = hash * SEEDS[row];
+        return (h ^ (h >>> 16)) & sketchMask;
+    }
+
+    private static int spread(int hash){
+        hash ^= hash >>> 16;
+        hash *= 0x7feb352d;
+        return hash ^ (hash >>> 15);
+    }
+}
@@ -0,0 +1,42 @@
+package de.webis.datastructures;
+
+/**
+ * A datastructure representing the result of a spell algorithm bounded by a deadline.
+ * If the deadline expired before the algorithm finished, the result contains the best
+ * corrections found so far and is marked as partial.
+ */
+public class BoundedSpelling {
+    private final RankedCandidates spelling;
+    private final boolean partial;
+
+    /**
+     * Class constructor.
+     * @param spelling corrections and their confidences, ranked by confidence
+     * @param partial  true if the deadline expired before the algorithm finished
+     */
+    public BoundedSpelling(RankedCandidates spelling, boolean partial){
+        this.spelling = spelling;
+        this.partial = partial;
+    }
+
+    /**
+     * Get the corrections found within the deadline.
+     * @return corrections and their confidences, ranked by confidence
+     */
+    public RankedCandidates getSpelling(){
+        return spelling;
+    }
+
+    /**
+     * Check whether the deadline expired before the algorithm finished.
+     * @return true if the spelling is incomplete
+     */
+    public boolean isPartial(){
+        return partial;
+    }
+
+    @Override
+    public String toString(){
+        return (partial ? "partial " : "")+spelling;
+    }
+}
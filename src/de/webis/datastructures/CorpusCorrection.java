@@ -51,6 +51,7 @@ public class CorpusCorrection {
      * @param correction correction to copy
      */
     public CorpusCorrection(CorpusCorrection correction){
+        id = correction.getId();
         query = correction.getQuery();
         groundTruth = new LinkedHashSet<>(correction.getGroundTruth());
         errorAnnotations = new LinkedHashSet<>(correction.errorAnnotations);
@@ -116,6 +117,14 @@ public class CorpusCorrection {
         return isDefinitelyMisspelled() || isPotentiallyMisspelled();
     }
 
+    /**
+     * Get the identifier of this corpus entry.
+     * @return identifier or null if the corpus doesn't provide one
+     */
+    public String getId(){
+        return id;
+    }
+
     /**
      * Get the query for this corpus entry.
      * @return query
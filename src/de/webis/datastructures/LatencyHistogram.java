@@ -0,0 +1,127 @@
+package de.webis.datastructures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds with log-linear buckets, similar to
+ * an HDR histogram. Values below 64 are counted exactly, above that each power of two is
+ * split into 32 buckets, so recorded values are kept with a relative error below 3.2%.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a single latency.
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos){
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(getIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Add all recorded values of another histogram.
+     * @param other histogram to merge into this one
+     */
+    public void merge(LatencyHistogram other){
+        for(int i = 0; i < NUM_BUCKETS; i++){
+            long bucketCount = other.counts.get(i);
+
+            if(bucketCount > 0){
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Get number of recorded values
+     * @return number of recorded values
+     */
+    public long getCount(){
+        return count.get();
+    }
+
+    /**
+     * Get mean of all recorded values
+     * @return mean latency in nanoseconds or 0 if nothing was recorded
+     */
+    public double getMean(){
+        long numValues = count.get();
+        return numValues == 0 ? 0.0 : (double) sum.get() / numValues;
+    }
+
+    /**
+     * Get largest recorded value
+     * @return maximum latency in nanoseconds
+     */
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+     * Get the value below or at which the given percentage of recorded values fall.
+     * @param percentile percentile between 0 and 100
+     * @return           upper bound of the bucket containing the percentile in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile){
+        long numValues = count.get();
+
+        if(numValues == 0){
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * numValues));
+        long seen = 0;
+
+        for(int i = 0; i < NUM_BUCKETS; i++){
+            seen += counts.get(i);
+
+            if(seen >= rank){
+                return Math.min(getUpperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    private static int getIndex(long value){
+        if(value < 2 * SUB_BUCKETS){
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long getUpperBound(int index){
+        if(index < 2 * SUB_BUCKETS){
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+
+        if(shift >= 63 - SUB_BUCKET_BITS - 1){
+            return Long.MAX_VALUE;
+        }
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
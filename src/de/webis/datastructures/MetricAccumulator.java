@@ -0,0 +1,109 @@
+package de.webis.datastructures;
+
+import de.webis.utils.MathUtil;
+
+import java.util.Properties;
+
+/**
+ * A datastructure accumulating EF1 and Precision@1 incrementally. Only the running sums
+ * are kept, so spelling results can be dropped once they are added. Accumulators of
+ * partial runs can be merged and all methods are safe for concurrent use.
+ */
+public class MetricAccumulator {
+    private double sumExpectedPrecision;
+    private double sumExpectedRecall;
+    private double sumPrecisionAtOne;
+    private long count;
+
+    /**
+     * Add the contribution of a single spelling result.
+     * @param result spelling result to add
+     */
+    public void add(SpellingResult result){
+        double expectedPrecision = result.getExpectedPrecision();
+        double expectedRecall = result.getExpectedRecall();
+        double precisionAtOne = result.isCorrectAtFirst() ? 1.0 : 0.0;
+
+        synchronized (this){
+            sumExpectedPrecision += expectedPrecision;
+            sumExpectedRecall += expectedRecall;
+            sumPrecisionAtOne += precisionAtOne;
+            count++;
+        }
+    }
+
+    /**
+     * Add the sums of another accumulator, e.g. of a partial run.
+     * @param other accumulator to merge into this one
+     */
+    public void merge(MetricAccumulator other){
+        double[] sums = other.getSums();
+
+        synchronized (this){
+            sumExpectedPrecision += sums[0];
+            sumExpectedRecall += sums[1];
+            sumPrecisionAtOne += sums[2];
+            count += (long) sums[3];
+        }
+    }
+
+    /**
+     * Get number of added spelling results
+     * @return number of spelling results
+     */
+    public synchronized long getCount(){
+        return count;
+    }
+
+    /**
+     * Calculate EF1 values for all added spelling results
+     * @return  EP, ER and EF1
+     */
+    public synchronized EF1 getEF1(){
+        double EP = 1.0 / count * sumExpectedPrecision;
+        double ER = 1.0 / count * sumExpectedRecall;
+        double EF1 = 2.0 * EP * ER / (ER + EP);
+
+        EP = MathUtil.roundDouble(EP);
+        ER = MathUtil.roundDouble(ER);
+        EF1 = MathUtil.roundDouble(EF1);
+
+        return new EF1(EP, ER, EF1);
+    }
+
+    /**
+     * Calculate Precision@1 for all added spelling results
+     * @return  Precision@1
+     */
+    public synchronized double getPrecision(){
+        return MathUtil.roundDouble(sumPrecisionAtOne / (double)(count));
+    }
+
+    /**
+     * Store the running sums, e.g. to checkpoint an evaluation run.
+     * @param properties properties to store the sums in
+     * @param prefix     prefix of the property keys
+     */
+    public synchronized void store(Properties properties, String prefix){
+        properties.setProperty(prefix+".ep", Double.toString(sumExpectedPrecision));
+        properties.setProperty(prefix+".er", Double.toString(sumExpectedRecall));
+        properties.setProperty(prefix+".p1", Double.toString(sumPrecisionAtOne));
+        properties.setProperty(prefix+".count", Long.toString(count));
+    }
+
+    /**
+     * Replace the running sums by sums previously stored with {@link #store(Properties, String)}.
+     * @param properties properties containing the sums
+     * @param prefix     prefix of the property keys
+     */
+    public synchronized void load(Properties properties, String prefix){
+        sumExpectedPrecision = Double.parseDouble(properties.getProperty(prefix+".ep", "0.0"));
+        sumExpectedRecall = Double.parseDouble(properties.getProperty(prefix+".er", "0.0"));
+        sumPrecisionAtOne = Double.parseDouble(properties.getProperty(prefix+".p1", "0.0"));
+        count = Long.parseLong(properties.getProperty(prefix+".count", "0"));
+    }
+
+    private synchronized double[] getSums(){
+        return new double[]{sumExpectedPrecision, sumExpectedRecall, sumPrecisionAtOne, count};
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
  * It builds an interface for <a href="http://multimap.io/">Multimap</a>
  */
 public class MultiValueLogger {
-    private static Map log;
+    private Map log;
 
     /**
      * Class constructor specifying save location.
@@ -0,0 +1,239 @@
+package de.webis.datastructures;
+
+import java.util.*;
+
+/**
+ * An immutable datastructure of spelling candidates and their confidences, ranked by
+ * descending confidence. Candidates and confidences are kept in parallel arrays which get
+ * sorted once on construction, candidates of equal confidence keep their given order.
+ * Candidates are looked up by a linear scan, which is faster than hashing for the few
+ * candidates a speller returns per query.
+ */
+public final class RankedCandidates {
+    private static final RankedCandidates EMPTY = new RankedCandidates(new String[0], new double[0], true);
+
+    private final String[] candidates;
+    private final double[] confidences;
+
+    /**
+     * Class constructor. The arrays are copied and ranked by descending confidence.
+     * @param candidates  distinct spelling candidates
+     * @param confidences confidence of each candidate such that its index matches the
+     *                    index of the candidate
+     */
+    public RankedCandidates(String[] candidates, double[] confidences){
+        if(candidates.length != confidences.length){
+            throw new IllegalArgumentException("Number of candidates and confidences differ: "
+                    +candidates.length+" != "+confidences.length);
+        }
+
+        int[] order = rank(confidences);
+
+        this.candidates = new String[candidates.length];
+        this.confidences = new double[confidences.length];
+
+        for(int i = 0; i < order.length; i++){
+            this.candidates[i] = candidates[order[i]];
+            this.confidences[i] = confidences[order[i]];
+        }
+    }
+
+    /**
+     * Class constructor taking arrays that are already ranked, without copying them.
+     */
+    private RankedCandidates(String[] candidates, double[] confidences, boolean ranked){
+        this.candidates = candidates;
+        this.confidences = confidences;
+    }
+
+    /**
+     * Get an empty instance.
+     * @return ranked candidates without any candidate
+     */
+    public static RankedCandidates empty(){
+        return EMPTY;
+    }
+
+    /**
+     * Get an instance of a single candidate.
+     * @param candidate  spelling candidate
+     * @param confidence confidence of the candidate
+     * @return           ranked candidates containing only the given candidate
+     */
+    public static RankedCandidates of(String candidate, double confidence){
+        return new RankedCandidates(new String[]{candidate}, new double[]{confidence}, true);
+    }
+
+    /**
+     * Rank the corrections of a map, e.g. the result of {@link de.webis.speller.Speller#spell(String)}.
+     * @param confidences map of corrections and their confidences
+     * @return            ranked corrections
+     */
+    public static RankedCandidates fromMap(Map<String, Double> confidences){
+        String[] candidates = new String[confidences.size()];
+        double[] values = new double[confidences.size()];
+        int i = 0;
+
+        for(Map.Entry<String, Double> entry: confidences.entrySet()){
+            candidates[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+
+        return new RankedCandidates(candidates, values);
+    }
+
+    /**
+     * Get the number of candidates.
+     * @return number of candidates
+     */
+    public int size(){
+        return candidates.length;
+    }
+
+    public boolean isEmpty(){
+        return candidates.length == 0;
+    }
+
+    /**
+     * Get the candidate at the given rank.
+     * @param rank rank of the candidate, starting with 0 for the most confident one
+     * @return     candidate at the given rank
+     */
+    public String getCandidate(int rank){
+        return candidates[rank];
+    }
+
+    /**
+     * Get the confidence of the candidate at the given rank.
+     * @param rank rank of the candidate, starting with 0 for the most confident one
+     * @return     confidence of the candidate at the given rank
+     */
+    public double getConfidence(int rank){
+        return confidences[rank];
+    }
+
+    /**
+     * Get the most confident candidate.
+     * @return most confident candidate or null if there are no candidates
+     */
+    public String getTopCandidate(){
+        return candidates.length > 0 ? candidates[0] : null;
+    }
+
+    /**
+     * Get the highest confidence.
+     * @return highest confidence or NaN if there are no candidates
+     */
+    public double getTopConfidence(){
+        return confidences.length > 0 ? confidences[0] : Double.NaN;
+    }
+
+    /**
+     * Get the rank of a candidate.
+     * @param candidate candidate to look up
+     * @return          rank of the candidate or -1 if it isn't contained
+     */
+    public int indexOf(String candidate){
+        for(int i = 0; i < candidates.length; i++){
+            if(candidates[i].equals(candidate)){
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public boolean contains(String candidate){
+        return indexOf(candidate) >= 0;
+    }
+
+    /**
+     * Get an unmodifiable view of the candidates in order of their rank.
+     * @return ranked candidates
+     */
+    public List<String> getCandidates(){
+        return Collections.unmodifiableList(Arrays.asList(candidates));
+    }
+
+    /**
+     * Get the confidences normalized such that they add up to 1. Candidates get ranked
+     * again only if the confidences add up to a negative value, e.g. for log probabilities.
+     * @return candidates with normalized confidences
+     */
+    public RankedCandidates normalize(){
+        double sum = 0.0;
+
+        for(double confidence: confidences){
+            sum += confidence;
+        }
+
+        double[] normalized = new double[confidences.length];
+
+        for(int i = 0; i < confidences.length; i++){
+            normalized[i] = confidences[i] / sum;
+        }
+
+        // dividing by a positive sum keeps the ranking
+        return sum > 0 ? new RankedCandidates(candidates, normalized, true) : new RankedCandidates(candidates, normalized);
+    }
+
+    /**
+     * Get the candidates as a map of corrections and their confidences, iterated in order
+     * of their rank. The map is a copy and may be modified.
+     * @return map of candidates and their confidences
+     */
+    public Map<String, Double> asMap(){
+        Map<String, Double> map = new LinkedHashMap<>();
+
+        for(int i = 0; i < candidates.length; i++){
+            map.put(candidates[i], confidences[i]);
+        }
+
+        return map;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder("[");
+
+        for(int i = 0; i < candidates.length; i++){
+            builder.append(i > 0 ? ", " : "").append(candidates[i]).append("=").append(confidences[i]);
+        }
+
+        return builder.append("]").toString();
+    }
+
+    /**
+     * Stable merge sort of the indices by descending value.
+     */
+    private static int[] rank(double[] values){
+        int[] order = new int[values.length];
+        int[] buffer = new int[values.length];
+
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+
+        for(int width = 1; width < order.length; width *= 2){
+            for(int from = 0; from < order.length - width; from += 2 * width){
+                int middle = from + width;
+                int to = Math.min(from + 2 * width, order.length);
+                int left = from, right = middle;
+
+                for(int i = from; i < to; i++){
+                    if(right >= to || (left < middle && Double.compare(values[order[left]], values[order[right]]) >= 0)){
+                        buffer[i] = order[left++];
+                    }
+                    else{
+                        buffer[i] = order[right++];
+                    }
+                }
+
+                System.arraycopy(buffer, from, order, from, to - from);
+            }
+        }
+
+        return order;
+    }
+}
@@ -7,6 +7,7 @@ import org.rocksdb.RocksDBException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Map;
 
 /**
  * This class represents a persistent 1:1 key-value store.
@@ -56,6 +57,16 @@ public class SingleValueLogger {
         }
     }
 
+    /**
+     * Inserts all given key-value pairs into the map whose keys don't exist.
+     * @param entries key-value pairs to insert
+     */
+    public void log(Map<String, Double> entries){
+        for(Map.Entry<String, Double> entry: entries.entrySet()){
+            log(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Retrieves value for the given key.
      * @param key key to get value for
@@ -1,10 +1,5 @@
 package de.webis.datastructures;
 
-import de.webis.utils.MathUtil;
-import de.webis.utils.ValueComparator;
-
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
 
 /**
@@ -15,7 +10,7 @@ public class SpellingResult {
     private String query;
     private Set<String> groundTruth;
 
-    private Map<String, Double> rankedResults;
+    private RankedCandidates rankedResults;
 
     /**
      * Class constructor.
@@ -25,21 +20,38 @@ public class SpellingResult {
      */
     public SpellingResult(String query,
                           Set<String> groundTruth,
-                          Map<String, Double> rankedResults){
+                          RankedCandidates rankedResults){
         this.query = query;
         this.groundTruth = groundTruth;
         this.rankedResults = rankedResults;
-
-        sortByConfidence();
     }
 
+    /**
+     * Class constructor ranking the results of a map by their confidences.
+     * @param query          query from corpus
+     * @param groundTruth    ground truth for the given query
+     * @param results        results from a spell algorithm for the given query and its confidences
+     */
+    public SpellingResult(String query,
+                          Set<String> groundTruth,
+                          Map<String, Double> results){
+        this(query, groundTruth, RankedCandidates.fromMap(results));
+    }
 
     /**
      * Get stored spelling results for the stored query without its confidences.
-     * @return  set of the spelled query
+     * @return  set of the spelled query in order of descending confidence
      */
     public Set<String> getResultSet(){
-        return rankedResults.keySet();
+        return new LinkedHashSet<>(rankedResults.getCandidates());
+    }
+
+    /**
+     * Get stored spelling results for the stored query ranked by their confidences.
+     * @return  ranked spelling results
+     */
+    public RankedCandidates getRankedResults(){
+        return rankedResults;
     }
 
     /**
@@ -57,8 +69,10 @@ public class SpellingResult {
      *                  null if there is no such result
      */
     public double getConfidence(String result){
-        if(rankedResults.containsKey(result))
-            return rankedResults.get(result);
+        int rank = rankedResults.indexOf(result);
+
+        if(rank >= 0)
+            return rankedResults.getConfidence(rank);
         else{
             System.out.println("ERROR: No prob found for \""+result+"\"");
         }
@@ -81,7 +95,7 @@ public class SpellingResult {
      * @return          true if the results contain the given spelling
      */
     public boolean isSpelledAlternative(String desirable){
-        return rankedResults.containsKey(desirable);
+        return rankedResults.contains(desirable);
     }
 
     /**
@@ -89,8 +103,8 @@ public class SpellingResult {
      * @return  true if at least one spelling result equals an entry of the ground truth
      */
     public boolean isCorrect(){
-        for(Map.Entry<String, Double> entry: rankedResults.entrySet()){
-            if(groundTruth.contains(entry.getKey())){
+        for(int i = 0; i < rankedResults.size(); i++){
+            if(groundTruth.contains(rankedResults.getCandidate(i))){
                 return true;
             }
         }
@@ -99,37 +113,66 @@ public class SpellingResult {
     }
 
     /**
-     * Calculate EF1 values for a list of spelling results
-     * @param results list of results of a spell algorithm
-     * @return        EP, ER and EF1
+     * Get the expected precision of this result, i.e. the summed confidences of all
+     * spelling results contained in the ground truth
+     * @return  expected precision
      */
-    public static EF1 getEF1(List<SpellingResult> results){
+    public double getExpectedPrecision(){
         double sumEP = 0.0;
-        double sumER = 0.0;
 
-        for(SpellingResult result: results){
-            for(String alternative: result.getResultSet()){
-                if(result.inGroundTruth(alternative)){
-                    sumEP += result.getConfidence(alternative);
-                }
+        for(int i = 0; i < rankedResults.size(); i++){
+            if(inGroundTruth(rankedResults.getCandidate(i))){
+                sumEP += rankedResults.getConfidence(i);
             }
+        }
+
+        return sumEP;
+    }
 
-            for(String alternation: result.getGroundTruth()){
-                if(result.isSpelledAlternative(alternation)){
-                    sumER += 1 / result.getGroundTruth().size();
-                }
+    /**
+     * Get the expected recall of this result with respect to its ground truth
+     * @return  expected recall
+     */
+    public double getExpectedRecall(){
+        double sumER = 0.0;
+
+        for(String alternation: getGroundTruth()){
+            if(isSpelledAlternative(alternation)){
+                sumER += 1 / getGroundTruth().size();
             }
         }
 
-        double EP = 1.0 / results.size() * sumEP;
-        double ER = 1.0 / results.size() * sumER;
-        double EF1 = 2.0 * EP * ER / (ER + EP);
+        return sumER;
+    }
 
-        EP = MathUtil.roundDouble(EP);
-        ER = MathUtil.roundDouble(ER);
-        EF1 = MathUtil.roundDouble(EF1);
+    /**
+     * Check whether one of the spelling results sharing the highest confidence
+     * is contained in the ground truth
+     * @return  true if the result is correct at the first rank
+     */
+    public boolean isCorrectAtFirst(){
+        double firstValue = rankedResults.getTopConfidence();
 
-        return new EF1(EP, ER, EF1);
+        for(int i = 0; i < rankedResults.size(); i++){
+            if(Double.compare(rankedResults.getConfidence(i), firstValue) != 0){
+                break;
+            }
+
+            if(inGroundTruth(rankedResults.getCandidate(i))){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Calculate EF1 values for a list of spelling results
+     * @param results list of results of a spell algorithm
+     * @return        EP, ER and EF1
+     */
+    public static EF1 getEF1(List<SpellingResult> results){
+        return accumulate(results).getEF1();
     }
 
     /**
@@ -138,27 +181,17 @@ public class SpellingResult {
      * @return        Precision@1
      */
     public static double getPrecision(List<SpellingResult> results){
-        double precision = 0.0;
+        return accumulate(results).getPrecision();
+    }
 
-        for(SpellingResult result: results){
-            if(result.rankedResults.size() > 0){
-                double firstValue = result.rankedResults.entrySet().iterator().next().getValue();
-
-                for(Map.Entry<String, Double> entry: result.rankedResults.entrySet()){
-                    if(!entry.getValue().equals(firstValue)){
-                        break;
-                    }
-
-                    if(result.inGroundTruth(entry.getKey())){
-                        precision += 1.0;
-                        break;
-                    }
-                }
-            }
+    private static MetricAccumulator accumulate(List<SpellingResult> results){
+        MetricAccumulator accumulator = new MetricAccumulator();
 
+        for(SpellingResult result: results){
+            accumulator.add(result);
         }
 
-        return MathUtil.roundDouble(precision / (double)(results.size()));
+        return accumulator;
     }
 
     @Override
@@ -167,17 +200,11 @@ public class SpellingResult {
 
         builder.append(query);
 
-        for(Map.Entry<String, Double> entry: rankedResults.entrySet()){
-            builder.append(";").append(entry.getKey())
-                    .append(";").append(entry.getValue());
+        for(int i = 0; i < rankedResults.size(); i++){
+            builder.append(";").append(rankedResults.getCandidate(i))
+                    .append(";").append(rankedResults.getConfidence(i));
         }
 
         return builder.toString();
     }
-
-    private void sortByConfidence(){
-        Map<String, Double> sorted = new TreeMap<String, Double>(new ValueComparator(rankedResults));
-        sorted.putAll(rankedResults);
-        rankedResults = new LinkedHashMap<>(rankedResults);
-    }
 }
@@ -0,0 +1,208 @@
+package de.webis.dictionary;
+
+import de.webis.datastructures.BoundedCache;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Decorator caching the verdicts and suggestions of any dictionary per word in memory.
+ * The first check of a misspelled word also fetches its suggestions, truncated to a
+ * max. number, so a following {@link #suggest(String)} is answered by the cache as well.
+ * The cache is bounded and frequency-aware, see {@link BoundedCache}. Optionally the
+ * cached words are saved to a file on {@link #close()} and loaded again by the next
+ * instance using this file.
+ */
+public class CachingDictionary implements SpellingDictionary {
+    private static final String CORRECT = "+";
+    private static final String MISSPELLED = "-";
+
+    private final SpellingDictionary dictionary;
+    private final BoundedCache<String, Entry> cache;
+    private final int maxSuggestions;
+    private final String cacheFile;
+
+    /**
+     * Class constructor of a cache only kept in memory.
+     * @param dictionary     dictionary whose verdicts and suggestions get cached
+     * @param capacity       max. number of cached words
+     * @param maxSuggestions max. number of cached suggestions per word
+     */
+    public CachingDictionary(SpellingDictionary dictionary, int capacity, int maxSuggestions){
+        this(dictionary, capacity, maxSuggestions, null);
+    }
+
+    /**
+     * Class constructor of a cache persisted across runs.
+     * @param dictionary     dictionary whose verdicts and suggestions get cached
+     * @param capacity       max. number of cached words
+     * @param maxSuggestions max. number of cached suggestions per word
+     * @param cacheFile      file the cached words are loaded from and saved to, or null to
+     *                       keep them in memory only
+     */
+    public CachingDictionary(SpellingDictionary dictionary, int capacity, int maxSuggestions, String cacheFile){
+        this.dictionary = dictionary;
+        this.cache = new BoundedCache<>(capacity);
+        this.maxSuggestions = maxSuggestions;
+        this.cacheFile = cacheFile;
+
+        if(cacheFile != null && new File(cacheFile).exists()){
+            load();
+        }
+    }
+
+    @Override
+    public boolean misspelled(String word) {
+        return getEntry(word).misspelled;
+    }
+
+    /**
+     * Get suggestions to correct a misspelled word, at most the max. number of cached
+     * suggestions. Suggestions for correct words are passed through without caching.
+     * @param word misspelled word
+     * @return     suggested corrections, best first
+     */
+    @Override
+    public List<String> suggest(String word) {
+        Entry entry = getEntry(word);
+
+        if(!entry.misspelled){
+            List<String> suggestions = dictionary.suggest(word);
+            return suggestions.size() > maxSuggestions ? suggestions.subList(0, maxSuggestions) : suggestions;
+        }
+
+        return entry.suggestions;
+    }
+
+    /**
+     * Get the cache of this dictionary, e.g. to read its hit and miss counters.
+     * @return cache of the checked words
+     */
+    public BoundedCache<String, ?> getCache(){
+        return cache;
+    }
+
+    /**
+     * Saves the cached words if a cache file is set, the cache stays in use.
+     */
+    @Override
+    public void flush() {
+        if(cacheFile != null){
+            save();
+        }
+
+        dictionary.flush();
+    }
+
+    /**
+     * Saves the cached words if a cache file is set and closes the cached dictionary.
+     */
+    @Override
+    public void close() {
+        if(cacheFile != null){
+            save();
+        }
+
+        System.out.println("Dictionary cache: "+cache
+                +String.format(Locale.ROOT, ", hit rate: %.3f", cache.getHitRate()));
+
+        dictionary.close();
+    }
+
+    private Entry getEntry(String word){
+        Entry entry = cache.get(word);
+
+        if(entry == null){
+            if(dictionary.misspelled(word)){
+                List<String> suggestions = dictionary.suggest(word);
+
+                if(suggestions.size() > maxSuggestions){
+                    suggestions = suggestions.subList(0, maxSuggestions);
+                }
+
+                entry = new Entry(true, Collections.unmodifiableList(new ArrayList<>(suggestions)));
+            }
+            else{
+                entry = new Entry(false, Collections.emptyList());
+            }
+
+            cache.put(word, entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Reads one word per line: the word, its verdict and its suggestions, separated by tabs.
+     */
+    private void load(){
+        try (BufferedReader reader = Files.newBufferedReader(new File(cacheFile).toPath(), StandardCharsets.UTF_8)) {
+            for(String line; (line = reader.readLine()) != null; ){
+                String[] fields = line.split("\t");
+
+                if(fields.length < 2){
+                    continue;
+                }
+
+                List<String> suggestions = Arrays.asList(fields).subList(2, Math.min(fields.length, 2 + maxSuggestions));
+                cache.put(fields[0], new Entry(fields[1].equals(MISSPELLED),
+                        Collections.unmodifiableList(new ArrayList<>(suggestions))));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the cache from the least to the most recently used word, so loading it
+     * restores the recency order. The file gets replaced atomically.
+     */
+    private synchronized void save(){
+        File file = new File(cacheFile);
+        File tmpFile = new File(cacheFile+".tmp");
+
+        if(file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs()){
+            System.err.println("Can't create parent directories: "+file.getPath());
+            return;
+        }
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8))) {
+            cache.forEach((word, entry) -> {
+                if(word.contains("\t") || word.contains("\n")){
+                    return;
+                }
+
+                writer.print(word+"\t"+(entry.misspelled ? MISSPELLED : CORRECT));
+
+                for(String suggestion: entry.suggestions){
+                    writer.print("\t"+suggestion);
+                }
+
+                writer.println();
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Entry {
+        private final boolean misspelled;
+        private final List<String> suggestions;
+
+        private Entry(boolean misspelled, List<String> suggestions){
+            this.misspelled = misspelled;
+            this.suggestions = suggestions;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package de.webis.dictionary;
+
+import dk.dren.hunspell.Hunspell;
+
+import java.io.FileNotFoundException;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * Dictionary backed by the native hunspell library. Calls are serialized, since the
+ * native hunspell handle must not be used by several threads at once. To check words
+ * from several threads at once, use a {@link HunspellDictionaryPool}.
+ */
+public class HunspellDictionary implements SpellingDictionary {
+    private final Hunspell.Dictionary dictionary;
+
+    /**
+     * Class constructor.
+     * @param dictionaryPath path of a hunspell dictionary without extension, e.g.
+     *                       <code>/usr/share/hunspell/en_US</code>
+     * @throws FileNotFoundException        if the *.dic or *.aff file doesn't exist
+     * @throws UnsupportedEncodingException if the encoding of the dictionary isn't supported
+     */
+    public HunspellDictionary(String dictionaryPath) throws FileNotFoundException, UnsupportedEncodingException {
+        dictionary = Hunspell.getInstance().getDictionary(dictionaryPath);
+    }
+
+    @Override
+    public synchronized boolean misspelled(String word) {
+        return dictionary.misspelled(word);
+    }
+
+    @Override
+    public synchronized List<String> suggest(String word) {
+        return dictionary.suggest(word);
+    }
+}
@@ -0,0 +1,239 @@
+package de.webis.dictionary;
+
+import dk.dren.hunspell.Hunspell;
+
+import java.io.FileNotFoundException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Dictionary backed by a pool of native hunspell handles of the same dictionary, so up to
+ * the size of the pool threads can check words at once. A call checks out a free handle
+ * and returns it afterwards. Handles are loaded on demand, if all handles are checked out
+ * and the pool is full, the call waits for a handle to be returned. The number of waiting
+ * calls and the time spent waiting are counted, so contention can be told apart from the
+ * time spent in hunspell.
+ * <p>
+ * {@link Hunspell#getDictionary(String)} shares a single handle per path, so each handle of
+ * the pool is loaded by its own instance of {@link Hunspell}.
+ * <p>
+ * Calls hold a shared lock while a handle is checked out, {@link #close()} takes the lock
+ * exclusively, so no handle is destroyed while in use.
+ */
+public class HunspellDictionaryPool implements SpellingDictionary {
+    private final String dictionaryPath;
+    private final int size;
+    private final BlockingQueue<Hunspell.Dictionary> available;
+    private final List<Hunspell.Dictionary> dictionaries = new ArrayList<>();
+    private final AtomicInteger numLoaded = new AtomicInteger();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    private final AtomicLong numCheckouts = new AtomicLong();
+    private final AtomicLong numWaits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Class constructor. The first handle is loaded right away, so a missing dictionary
+     * fails here and not on first use.
+     * @param dictionaryPath path of a hunspell dictionary without extension, e.g.
+     *                       <code>/usr/share/hunspell/en_US</code>
+     * @param size           max. number of handles, e.g. the number of threads sharing the pool
+     * @throws FileNotFoundException        if the *.dic or *.aff file doesn't exist
+     * @throws UnsupportedEncodingException if the encoding of the dictionary isn't supported
+     */
+    public HunspellDictionaryPool(String dictionaryPath, int size)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        if(size < 1){
+            throw new IllegalArgumentException("Size must be positive: "+size);
+        }
+
+        this.dictionaryPath = dictionaryPath;
+        this.size = size;
+        this.available = new ArrayBlockingQueue<>(size);
+
+        numLoaded.incrementAndGet();
+        available.add(load());
+    }
+
+    @Override
+    public boolean misspelled(String word) {
+        return withDictionary(dictionary -> dictionary.misspelled(word));
+    }
+
+    @Override
+    public List<String> suggest(String word) {
+        return withDictionary(dictionary -> dictionary.suggest(word));
+    }
+
+    /**
+     * Get the number of loaded handles.
+     * @return number of handles, at most the size of the pool
+     */
+    public int getNumLoaded(){
+        return numLoaded.get();
+    }
+
+    /**
+     * Get the number of calls checking out a handle.
+     * @return number of checkouts
+     */
+    public long getNumCheckouts(){
+        return numCheckouts.get();
+    }
+
+    /**
+     * Get the number of calls which had to wait for a handle, since all were checked out.
+     * @return number of waiting checkouts
+     */
+    public long getNumWaits(){
+        return numWaits.get();
+    }
+
+    /**
+     * Get the total time calls waited for a handle.
+     * @return waiting time in nanoseconds
+     */
+    public long getWaitNanos(){
+        return waitNanos.get();
+    }
+
+    /**
+     * Get the longest time a call waited for a handle.
+     * @return max. waiting time in nanoseconds
+     */
+    public long getMaxWaitNanos(){
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public String toString(){
+        return String.format(Locale.ROOT, "handles: %d/%d, checkouts: %d, waits: %d, wait time: %.3f ms (max. %.3f ms)",
+                numLoaded.get(), size, numCheckouts.get(), numWaits.get(),
+                waitNanos.get() / 1.0e6, maxWaitNanos.get() / 1.0e6);
+    }
+
+    /**
+     * Waits for checked out handles to be returned, prints the contention of the pool and
+     * frees the native handles. Later calls of the pool throw an {@link IllegalStateException},
+     * closing it again has no effect.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+
+        try {
+            if(closed){
+                return;
+            }
+
+            closed = true;
+            System.out.println("Hunspell pool ("+dictionaryPath+"): "+this);
+
+            synchronized (dictionaries){
+                for(Hunspell.Dictionary dictionary: dictionaries){
+                    dictionary.destroy();
+                }
+
+                dictionaries.clear();
+            }
+
+            available.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the given function to a checked out handle and returns the handle afterwards.
+     * @throws IllegalStateException if the pool is closed
+     */
+    private <T> T withDictionary(Function<Hunspell.Dictionary, T> function){
+        lock.readLock().lock();
+
+        try {
+            if(closed){
+                throw new IllegalStateException("Dictionary pool is closed: "+dictionaryPath);
+            }
+
+            Hunspell.Dictionary dictionary = checkout();
+
+            try {
+                return function.apply(dictionary);
+            } finally {
+                available.add(dictionary);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a free handle, loads a new one if none is free and the pool isn't full yet, or
+     * waits for one to be returned. Must be called holding the read lock.
+     */
+    private Hunspell.Dictionary checkout(){
+        numCheckouts.incrementAndGet();
+        Hunspell.Dictionary dictionary = available.poll();
+
+        if(dictionary != null){
+            return dictionary;
+        }
+
+        if(numLoaded.getAndUpdate(loaded -> loaded < size ? loaded + 1 : loaded) < size){
+            try {
+                return load();
+            } catch (FileNotFoundException | UnsupportedEncodingException e) {
+                numLoaded.decrementAndGet();
+                throw new IllegalStateException("Can't load dictionary: "+dictionaryPath, e);
+            }
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            dictionary = available.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a dictionary", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        numWaits.incrementAndGet();
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        return dictionary;
+    }
+
+    private Hunspell.Dictionary load() throws FileNotFoundException, UnsupportedEncodingException {
+        Hunspell.Dictionary dictionary = new HunspellInstance(Hunspell.getInstance().getLibFile())
+                .getDictionary(dictionaryPath);
+
+        synchronized (dictionaries){
+            dictionaries.add(dictionary);
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * Instance of hunspell holding its own handles, the constructor of {@link Hunspell}
+     * is protected.
+     */
+    private static class HunspellInstance extends Hunspell {
+        private HunspellInstance(String libFile){
+            super(libFile);
+        }
+    }
+}
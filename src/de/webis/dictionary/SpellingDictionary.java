@@ -0,0 +1,35 @@
+package de.webis.dictionary;
+
+import java.util.List;
+
+/**
+ * Interface of dictionaries checking the spelling of single words and suggesting
+ * corrections of misspelled ones. Implementations must be safe for concurrent use.
+ */
+public interface SpellingDictionary {
+    /**
+     * Check whether a word is misspelled.
+     * @param word word to check
+     * @return     true if the word isn't contained in the dictionary
+     */
+    boolean misspelled(String word);
+
+    /**
+     * Get suggestions to correct a misspelled word.
+     * @param word misspelled word
+     * @return     suggested corrections, best first
+     */
+    List<String> suggest(String word);
+
+    /**
+     * Saves data gathered by the dictionary, e.g. cached words, keeping it usable.
+     */
+    default void flush(){
+    }
+
+    /**
+     * Releases the resources of the dictionary, e.g. saves cached words.
+     */
+    default void close(){
+    }
+}
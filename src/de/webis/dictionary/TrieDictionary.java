@@ -0,0 +1,525 @@
+package de.webis.dictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Pure Java dictionary loading the word list of a hunspell dictionary (*.dic and *.aff).
+ * All words are expanded by their prefix and suffix rules once on loading and stored in a
+ * compact trie of lower-cased words. Suggestions are all words within a bounded
+ * Damerau-Levenshtein distance, found by a single traversal of the trie which is pruned
+ * as soon as the distance bound is exceeded.
+ * <p>
+ * Only the affix rules are supported, twofold affixes (continuation flags of affixes),
+ * compounding and the replacement tables of hunspell are ignored. Once loaded, the
+ * dictionary is immutable and safe for concurrent readers.
+ */
+public class TrieDictionary implements SpellingDictionary {
+    private static final int DEFAULT_MAX_DISTANCE = 2;
+    private static final int DEFAULT_MAX_SUGGESTIONS = 10;
+
+    private final int maxDistance;
+    private final int maxSuggestions;
+
+    /** original words, sorted by their lower-cased form */
+    private String[] words;
+
+    // trie in first-child/next-sibling representation, node 0 is the root
+    private char[] labels;
+    private int[] firstChild;
+    private int[] nextSibling;
+    /** index of the first word ending at a node or -1 */
+    private int[] wordIndex;
+    private int numNodes;
+
+    /**
+     * Class constructor using a max. distance of 2 and up to 10 suggestions.
+     * @param dictionaryPath path of a hunspell dictionary without extension, e.g.
+     *                       <code>/usr/share/hunspell/en_US</code>
+     * @throws IOException   if the *.dic or *.aff file can't be read
+     */
+    public TrieDictionary(String dictionaryPath) throws IOException {
+        this(dictionaryPath, DEFAULT_MAX_DISTANCE, DEFAULT_MAX_SUGGESTIONS);
+    }
+
+    /**
+     * Class constructor.
+     * @param dictionaryPath path of a hunspell dictionary without extension, e.g.
+     *                       <code>/usr/share/hunspell/en_US</code>
+     * @param maxDistance    max. Damerau-Levenshtein distance of suggestions
+     * @param maxSuggestions max. number of suggestions
+     * @throws IOException   if the *.dic or *.aff file can't be read
+     */
+    public TrieDictionary(String dictionaryPath, int maxDistance, int maxSuggestions) throws IOException {
+        this.maxDistance = maxDistance;
+        this.maxSuggestions = maxSuggestions;
+
+        AffixRules rules = new AffixRules(dictionaryPath+".aff");
+        Set<String> expanded = new HashSet<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(dictionaryPath+".dic"), rules.charset)) {
+            String line = reader.readLine();
+
+            // the first line holds the approximate number of entries
+            while((line = reader.readLine()) != null){
+                line = line.trim();
+
+                if(!line.isEmpty()){
+                    rules.expand(line, expanded);
+                }
+            }
+        }
+
+        build(expanded);
+    }
+
+    /**
+     * Check whether a word is misspelled. Like hunspell, a word is spelled correctly if it
+     * is contained in the dictionary, if it is capitalized or in upper case and its lower
+     * case form is contained or if it doesn't contain any letter (e.g. numbers).
+     * @param word word to check
+     * @return     true if the word isn't contained in the dictionary
+     */
+    @Override
+    public boolean misspelled(String word) {
+        if(!containsLetter(word)){
+            return false;
+        }
+
+        int node = find(word.toLowerCase(Locale.ROOT));
+
+        if(node < 0 || wordIndex[node] < 0){
+            return true;
+        }
+
+        boolean capitalized = Character.isUpperCase(word.charAt(0))
+                && word.substring(1).equals(word.substring(1).toLowerCase(Locale.ROOT));
+        boolean upperCase = word.equals(word.toUpperCase(Locale.ROOT));
+
+        for(int i = wordIndex[node]; i < words.length && words[i].equalsIgnoreCase(word); i++){
+            String entry = words[i];
+
+            if(entry.equals(word) || (upperCase && entry.toUpperCase(Locale.ROOT).equals(word))
+                    || (capitalized && entry.equals(word.toLowerCase(Locale.ROOT)))){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get all words within the max. distance of the given word, ordered by their distance,
+     * then by whether they start with the same letter, their difference in length and
+     * alphabetically. Case is ignored for the distance.
+     * @param word misspelled word
+     * @return     suggested corrections, best first
+     */
+    @Override
+    public List<String> suggest(String word) {
+        String query = word.toLowerCase(Locale.ROOT);
+        List<Suggestion> suggestions = new ArrayList<>();
+
+        int[][] rows = new int[query.length() + maxDistance + 2][query.length() + 1];
+
+        for(int j = 0; j <= query.length(); j++){
+            rows[0][j] = j;
+        }
+
+        char[] path = new char[rows.length];
+
+        for(int child = firstChild[0]; child >= 0; child = nextSibling[child]){
+            search(child, 1, query, rows, path, suggestions);
+        }
+
+        Collections.sort(suggestions);
+
+        List<String> results = new ArrayList<>();
+
+        for(Suggestion suggestion: suggestions){
+            for(int i = suggestion.wordIndex; i < words.length
+                    && words[i].toLowerCase(Locale.ROOT).equals(suggestion.key); i++){
+                if(!words[i].equals(word) && results.size() < maxSuggestions){
+                    results.add(words[i]);
+                }
+            }
+
+            if(results.size() >= maxSuggestions){
+                break;
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Get the number of distinct words after expanding the affix rules.
+     * @return number of words
+     */
+    public int size(){
+        return words.length;
+    }
+
+    /**
+     * Depth-first traversal computing one row of the distance matrix per trie node.
+     */
+    private void search(int node, int depth, String query, int[][] rows, char[] path, List<Suggestion> suggestions){
+        char label = labels[node];
+        path[depth - 1] = label;
+
+        int[] row = rows[depth];
+        int[] previous = rows[depth - 1];
+        int min = row[0] = depth;
+
+        for(int j = 1; j <= query.length(); j++){
+            char c = query.charAt(j - 1);
+            int cost = c == label ? 0 : 1;
+            int distance = Math.min(Math.min(row[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+
+            if(depth > 1 && j > 1 && c == path[depth - 2] && query.charAt(j - 2) == label){
+                distance = Math.min(distance, rows[depth - 2][j - 2] + 1);
+            }
+
+            row[j] = distance;
+            min = Math.min(min, distance);
+        }
+
+        if(wordIndex[node] >= 0 && row[query.length()] <= maxDistance){
+            suggestions.add(new Suggestion(new String(path, 0, depth), wordIndex[node],
+                    row[query.length()], query));
+        }
+
+        if(min <= maxDistance && depth + 1 < rows.length){
+            for(int child = firstChild[node]; child >= 0; child = nextSibling[child]){
+                search(child, depth + 1, query, rows, path, suggestions);
+            }
+        }
+    }
+
+    private int find(String key){
+        int node = 0;
+
+        for(int i = 0; i < key.length() && node >= 0; i++){
+            char c = key.charAt(i);
+            int child = firstChild[node];
+
+            while(child >= 0 && labels[child] != c){
+                child = nextSibling[child];
+            }
+
+            node = child;
+        }
+
+        return node;
+    }
+
+    private void build(Set<String> expanded){
+        words = expanded.toArray(new String[0]);
+        Arrays.sort(words, Comparator.comparing((String word) -> word.toLowerCase(Locale.ROOT))
+                .thenComparing(Comparator.naturalOrder()));
+
+        int capacity = Math.max(16, words.length * 2);
+        labels = new char[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        wordIndex = new int[capacity];
+
+        numNodes = 1;
+        firstChild[0] = -1;
+        nextSibling[0] = -1;
+        wordIndex[0] = -1;
+
+        for(int i = 0; i < words.length; i++){
+            String key = words[i].toLowerCase(Locale.ROOT);
+            int node = 0;
+
+            for(int j = 0; j < key.length(); j++){
+                node = getOrAddChild(node, key.charAt(j));
+            }
+
+            if(wordIndex[node] < 0){
+                wordIndex[node] = i;
+            }
+        }
+
+        labels = Arrays.copyOf(labels, numNodes);
+        firstChild = Arrays.copyOf(firstChild, numNodes);
+        nextSibling = Arrays.copyOf(nextSibling, numNodes);
+        wordIndex = Arrays.copyOf(wordIndex, numNodes);
+    }
+
+    private int getOrAddChild(int node, char label){
+        int child = firstChild[node];
+
+        while(child >= 0){
+            if(labels[child] == label){
+                return child;
+            }
+
+            child = nextSibling[child];
+        }
+
+        if(numNodes == labels.length){
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            wordIndex = Arrays.copyOf(wordIndex, capacity);
+        }
+
+        child = numNodes++;
+        labels[child] = label;
+        firstChild[child] = -1;
+        wordIndex[child] = -1;
+        nextSibling[child] = firstChild[node];
+        firstChild[node] = child;
+
+        return child;
+    }
+
+    private static boolean containsLetter(String word){
+        for(int i = 0; i < word.length(); i++){
+            if(Character.isLetter(word.charAt(i))){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class Suggestion implements Comparable<Suggestion> {
+        private final String key;
+        private final int wordIndex;
+        private final int distance;
+        private final boolean sameFirstLetter;
+        private final int lengthDifference;
+
+        private Suggestion(String key, int wordIndex, int distance, String query){
+            this.key = key;
+            this.wordIndex = wordIndex;
+            this.distance = distance;
+            this.sameFirstLetter = !query.isEmpty() && key.charAt(0) == query.charAt(0);
+            this.lengthDifference = Math.abs(key.length() - query.length());
+        }
+
+        @Override
+        public int compareTo(Suggestion other){
+            if(distance != other.distance){
+                return Integer.compare(distance, other.distance);
+            }
+
+            if(sameFirstLetter != other.sameFirstLetter){
+                return sameFirstLetter ? -1 : 1;
+            }
+
+            if(lengthDifference != other.lengthDifference){
+                return Integer.compare(lengthDifference, other.lengthDifference);
+            }
+
+            return key.compareTo(other.key);
+        }
+    }
+
+    /**
+     * Prefix and suffix rules of a hunspell *.aff file.
+     */
+    private static class AffixRules {
+        private Charset charset = StandardCharsets.ISO_8859_1;
+        private String flagType = "char";
+
+        private final Map<String, List<Affix>> prefixes = new HashMap<>();
+        private final Map<String, List<Affix>> suffixes = new HashMap<>();
+        private final Set<String> excludedFlags = new HashSet<>();
+        private String needAffixFlag;
+
+        private AffixRules(String affixFile) throws IOException {
+            List<String> lines = Files.readAllLines(Paths.get(affixFile), StandardCharsets.ISO_8859_1);
+
+            for(String line: lines){
+                String[] fields = line.trim().split("\\s+");
+
+                if(fields[0].equals("SET") && fields.length > 1){
+                    charset = Charset.forName(fields[1]);
+                }
+            }
+
+            if(!charset.equals(StandardCharsets.ISO_8859_1)){
+                lines = Files.readAllLines(Paths.get(affixFile), charset);
+            }
+
+            for(int i = 0; i < lines.size(); i++){
+                String[] fields = lines.get(i).trim().split("\\s+");
+
+                switch (fields[0]){
+                    case "FLAG":
+                        flagType = fields[1];
+                        break;
+                    case "NEEDAFFIX":
+                    case "PSEUDOROOT":
+                        needAffixFlag = fields[1];
+                        break;
+                    case "FORBIDDENWORD":
+                    case "ONLYINCOMPOUND":
+                        excludedFlags.add(fields[1]);
+                        break;
+                    case "PFX":
+                    case "SFX":
+                        if(fields.length == 4 && fields[3].matches("\\d+")){
+                            boolean prefix = fields[0].equals("PFX");
+                            List<Affix> affixes = new ArrayList<>();
+
+                            for(int j = 0; j < Integer.parseInt(fields[3]); j++){
+                                affixes.add(new Affix(lines.get(++i).trim().split("\\s+"),
+                                        prefix, fields[2].equals("Y")));
+                            }
+
+                            (prefix ? prefixes : suffixes).computeIfAbsent(fields[1], key -> new ArrayList<>())
+                                    .addAll(affixes);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Add the stem of a *.dic entry and all its affixed forms to the given set.
+         */
+        private void expand(String entry, Set<String> expanded){
+            // morphological fields follow after whitespace, flags after an unescaped slash
+            String[] fields = entry.split("[ \t]", 2);
+            String stem = fields[0];
+            List<String> flags = Collections.emptyList();
+
+            int slash = stem.indexOf('/');
+
+            while(slash > 0 && stem.charAt(slash - 1) == '\\'){
+                slash = stem.indexOf('/', slash + 1);
+            }
+
+            if(slash > 0){
+                flags = parseFlags(stem.substring(slash + 1));
+                stem = stem.substring(0, slash);
+            }
+
+            stem = stem.replace("\\/", "/");
+
+            for(String flag: flags){
+                if(excludedFlags.contains(flag)){
+                    return;
+                }
+            }
+
+            if(needAffixFlag == null || !flags.contains(needAffixFlag)){
+                expanded.add(stem);
+            }
+
+            List<String> crossSuffixed = new ArrayList<>();
+
+            for(String flag: flags){
+                for(Affix suffix: suffixes.getOrDefault(flag, Collections.emptyList())){
+                    String form = suffix.apply(stem);
+
+                    if(form != null){
+                        expanded.add(form);
+
+                        if(suffix.crossProduct){
+                            crossSuffixed.add(form);
+                        }
+                    }
+                }
+            }
+
+            for(String flag: flags){
+                for(Affix prefix: prefixes.getOrDefault(flag, Collections.emptyList())){
+                    String form = prefix.apply(stem);
+
+                    if(form != null){
+                        expanded.add(form);
+
+                        if(prefix.crossProduct){
+                            for(String suffixed: crossSuffixed){
+                                if(suffixed.startsWith(prefix.strip)){
+                                    expanded.add(prefix.add + suffixed.substring(prefix.strip.length()));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private List<String> parseFlags(String flags){
+            List<String> parsed = new ArrayList<>();
+
+            switch (flagType){
+                case "long":
+                    for(int i = 0; i + 1 < flags.length(); i += 2){
+                        parsed.add(flags.substring(i, i + 2));
+                    }
+                    break;
+                case "num":
+                    parsed.addAll(Arrays.asList(flags.split(",")));
+                    break;
+                default:
+                    for(int i = 0; i < flags.length(); i = flags.offsetByCodePoints(i, 1)){
+                        parsed.add(new String(Character.toChars(flags.codePointAt(i))));
+                    }
+                    break;
+            }
+
+            return parsed;
+        }
+    }
+
+    /**
+     * A single prefix or suffix rule: strip characters, add an affix if the condition matches.
+     */
+    private static class Affix {
+        private final boolean prefix;
+        private final boolean crossProduct;
+        private final String strip;
+        private final String add;
+        private final Pattern condition;
+
+        private Affix(String[] fields, boolean prefix, boolean crossProduct){
+            this.prefix = prefix;
+            this.crossProduct = crossProduct;
+            this.strip = fields[2].equals("0") ? "" : fields[2];
+
+            // continuation flags of twofold affixes are ignored
+            String affix = fields[3].split("/", 2)[0];
+            this.add = affix.equals("0") ? "" : affix;
+
+            String conditionString = fields.length > 4 ? fields[4] : ".";
+            this.condition = conditionString.equals(".") ? null
+                    : Pattern.compile(prefix ? "^"+conditionString+".*" : ".*"+conditionString+"$");
+        }
+
+        /**
+         * @return affixed form of the stem or null if the rule doesn't apply
+         */
+        private String apply(String stem){
+            if(stem.length() <= strip.length() && !strip.isEmpty()){
+                return null;
+            }
+
+            if(condition != null && !condition.matcher(stem).matches()){
+                return null;
+            }
+
+            if(prefix){
+                return stem.startsWith(strip) ? add + stem.substring(strip.length()) : null;
+            }
+
+            return stem.endsWith(strip) ? stem.substring(0, stem.length() - strip.length()) + add : null;
+        }
+    }
+}
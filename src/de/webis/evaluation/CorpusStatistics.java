@@ -0,0 +1,281 @@
+package de.webis.evaluation;
+
+import de.webis.datastructures.CorpusCorrection;
+import de.webis.parser.CorpusParser;
+import de.webis.parser.ErrorAnnotationParser;
+import de.webis.utils.EditDistance;
+import de.webis.utils.MathUtil;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Statistical measures of a corpus, computed in a single streaming pass over the corpus
+ * and its error annotation file. Levenshtein distances of the spelling variants are
+ * computed in parallel for blocks of corpus entries.
+ */
+public class CorpusStatistics {
+    private static final int BLOCK_SIZE = 10000;
+
+    private final String corpusTag;
+
+    private int corpusSize;
+    private int numPotentialMisspellings;
+    private int numDefiniteMisspellings;
+
+    private long numSpellingVariantsPotential;
+    private long numSpellingVariantsDefinite;
+
+    private long sumMinLevenshteinDistDefinite;
+    private long sumMinLevenshteinDist;
+
+    private final Map<Integer, Integer> levenshteinDistPotential = new TreeMap<>();
+    private final Map<Integer, Integer> levenshteinDistDefinite = new TreeMap<>();
+
+    private final Map<String, Double> numQueriesWithErrorType = new HashMap<>();
+    private final Map<String, Double> numSpellingsWithErrorType = new HashMap<>();
+
+    private String currentQueryId = "";
+    private final boolean[] currentQueryErrorTypes = new boolean[ErrorAnnotationParser.ERROR_TYPES.length];
+
+    private CorpusStatistics(String corpusTag){
+        this.corpusTag = corpusTag;
+
+        for(String errorType: ErrorAnnotationParser.ERROR_TYPES){
+            numSpellingsWithErrorType.put(errorType, 0.0);
+        }
+    }
+
+    /**
+     * Compute the statistical measures of a corpus.
+     * @param parser     corpus for analysis
+     * @param numThreads number of threads computing distances
+     * @return           statistical measures
+     */
+    public static CorpusStatistics compute(CorpusParser parser, int numThreads){
+        CorpusStatistics statistics = new CorpusStatistics(parser.getCorpusTag());
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        List<CorpusCorrection> block = new ArrayList<>(BLOCK_SIZE);
+
+        try {
+            // error types are counted over the whole annotation file, also lines not joined to the corpus
+            parser.parse((correction, annotations) -> {
+                block.add(correction);
+
+                if(block.size() == BLOCK_SIZE){
+                    statistics.addBlock(block, pool);
+                    block.clear();
+                }
+            }, statistics::addErrorTypes);
+
+            statistics.addBlock(block, pool);
+            statistics.countQueryErrorTypes();
+        } finally {
+            pool.shutdown();
+        }
+
+        return statistics;
+    }
+
+    private void addErrorTypes(String[] annotation){
+        int[] counts = ErrorAnnotationParser.getErrorTypeCounts(annotation);
+
+        // error types are counted once per query id, like in the error annotation file
+        if(!annotation[0].equals(currentQueryId)){
+            countQueryErrorTypes();
+            currentQueryId = annotation[0];
+        }
+
+        for(int i = 0; i < counts.length; i++){
+            String errorType = ErrorAnnotationParser.ERROR_TYPES[i];
+
+            numSpellingsWithErrorType.put(errorType, numSpellingsWithErrorType.get(errorType) + counts[i]);
+            currentQueryErrorTypes[i] |= counts[i] > 0;
+        }
+    }
+
+    private void countQueryErrorTypes(){
+        for(int i = 0; i < currentQueryErrorTypes.length; i++){
+            if(currentQueryErrorTypes[i]){
+                numQueriesWithErrorType.merge(ErrorAnnotationParser.ERROR_TYPES[i], 1.0, Double::sum);
+                currentQueryErrorTypes[i] = false;
+            }
+        }
+    }
+
+    private void addBlock(List<CorpusCorrection> block, ForkJoinPool pool){
+        List<int[]> distances;
+
+        try {
+            distances = pool.submit(() -> block.parallelStream()
+                    .map(CorpusStatistics::getDistances)
+                    .collect(Collectors.toList())
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        for(int i = 0; i < block.size(); i++){
+            add(block.get(i), distances.get(i));
+        }
+    }
+
+    private static int[] getDistances(CorpusCorrection correction){
+        if(!correction.containsError()){
+            return null;
+        }
+
+        int[] distances = new int[correction.getGroundTruth().size()];
+        int i = 0;
+
+        for(String desSpellingVariant: correction.getGroundTruth()){
+            distances[i++] = EditDistance.levenshtein(desSpellingVariant, correction.getQuery());
+        }
+
+        return distances;
+    }
+
+    private void add(CorpusCorrection correction, int[] distances){
+        corpusSize++;
+
+        if(distances == null){
+            return;
+        }
+
+        boolean potential = correction.isPotentiallyMisspelled();
+        boolean definite = correction.isDefinitelyMisspelled();
+
+        if(potential){
+            numPotentialMisspellings++;
+            numSpellingVariantsPotential += distances.length;
+        }
+
+        if(definite){
+            numDefiniteMisspellings++;
+            numSpellingVariantsDefinite += distances.length;
+        }
+
+        int minLevenshteinDistDefinite = Integer.MAX_VALUE;
+        int minLevenshteinDist = Integer.MAX_VALUE;
+        int i = 0;
+
+        for(String desSpellingVariant: correction.getGroundTruth()){
+            int distance = distances[i++];
+
+            if(potential){
+                levenshteinDistPotential.merge(distance, 1, Integer::sum);
+            }
+
+            if(definite){
+                levenshteinDistDefinite.merge(distance, 1, Integer::sum);
+
+                if(minLevenshteinDistDefinite > distance && !desSpellingVariant.equals(correction.getQuery())){
+                    minLevenshteinDistDefinite = distance;
+                }
+            }
+
+            if((definite || potential) && minLevenshteinDist > distance){
+                minLevenshteinDist = distance;
+            }
+        }
+
+        if(minLevenshteinDistDefinite != Integer.MAX_VALUE)
+            sumMinLevenshteinDistDefinite += minLevenshteinDistDefinite;
+
+        if(minLevenshteinDist != Integer.MAX_VALUE)
+            sumMinLevenshteinDist += minLevenshteinDist;
+    }
+
+    public String getCorpusTag(){
+        return corpusTag;
+    }
+
+    public int getCorpusSize(){
+        return corpusSize;
+    }
+
+    public int getNumPotentialMisspellings(){
+        return numPotentialMisspellings;
+    }
+
+    public int getNumDefiniteMisspellings(){
+        return numDefiniteMisspellings;
+    }
+
+    public int getNumMisspellings(){
+        return numPotentialMisspellings + numDefiniteMisspellings;
+    }
+
+    public double getMisspellingPercentage(){
+        return MathUtil.roundDouble((double)(getNumMisspellings()) / (double)(corpusSize) * 100.0, 2);
+    }
+
+    public double getPotentialMisspellingPercentage(){
+        return MathUtil.roundDouble((double)(numPotentialMisspellings) / (double)(corpusSize) * 100.0, 2);
+    }
+
+    public double getDefiniteMisspellingPercentage(){
+        return MathUtil.roundDouble((double)(numDefiniteMisspellings) / (double)(corpusSize) * 100.0, 2);
+    }
+
+    public double getAvgMinLevenshteinDistDefinite(){
+        return MathUtil.roundDouble((double)(sumMinLevenshteinDistDefinite) / (double)(numDefiniteMisspellings),2);
+    }
+
+    public double getAvgMinLevenshteinDist(){
+        return MathUtil.roundDouble((double)(sumMinLevenshteinDist) / (double)(getNumMisspellings()),2);
+    }
+
+    public long getNumSpellingVariantsPotential(){
+        return numSpellingVariantsPotential;
+    }
+
+    public long getNumSpellingVariantsDefinite(){
+        return numSpellingVariantsDefinite;
+    }
+
+    public double getNumSpellingVariantsPerQueryPotential(){
+        return MathUtil.roundDouble((double)(numSpellingVariantsPotential) / (double)(numPotentialMisspellings), 2);
+    }
+
+    public double getNumSpellingVariantsPerQueryDefinite(){
+        return MathUtil.roundDouble((double)(numSpellingVariantsDefinite) / (double)(numDefiniteMisspellings),2);
+    }
+
+    /**
+     * Get frequencies of Levenshtein distances between potentially misspelled queries and their spelling variants
+     * @return mapping of distance and frequency
+     */
+    public Map<Integer, Integer> getLevenshteinDistPotential(){
+        return Collections.unmodifiableMap(levenshteinDistPotential);
+    }
+
+    /**
+     * Get frequencies of Levenshtein distances between definitely misspelled queries and their spelling variants
+     * @return mapping of distance and frequency
+     */
+    public Map<Integer, Integer> getLevenshteinDistDefinite(){
+        return Collections.unmodifiableMap(levenshteinDistDefinite);
+    }
+
+    /**
+     * Get number of queries containing each error type in at least one spelling variant
+     * @return mapping of error type and number of affected queries
+     */
+    public Map<String, Double> getNumQueriesWithErrorType(){
+        return Collections.unmodifiableMap(numQueriesWithErrorType);
+    }
+
+    /**
+     * Get number of errors of each type summed over all spelling variants
+     * @return mapping of error type and number of appearance
+     */
+    public Map<String, Double> getNumSpellingsWithErrorType(){
+        return Collections.unmodifiableMap(numSpellingsWithErrorType);
+    }
+}
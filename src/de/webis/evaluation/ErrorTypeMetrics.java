@@ -0,0 +1,143 @@
+package de.webis.evaluation;
+
+import de.webis.datastructures.CorpusCorrection;
+import de.webis.datastructures.MetricAccumulator;
+import de.webis.datastructures.SpellingResult;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Streaming EF1 and Precision@1 measures of a spelling algorithm, bucketed by
+ * the annotated error types of the evaluated corpus entries.
+ */
+public class ErrorTypeMetrics {
+    public static final String GENERAL = "General";
+    public static final String NO_ERROR = "No Error";
+
+    private static final String[][] ERROR_TYPES = {
+            {"space", "Space Error"},
+            {"character", "Character Error"},
+            {"insertion", "Insertion Error"},
+            {"deletion", "Deletion Error"},
+            {"substitution", "Substitution Error"},
+            {"transposition", "Transposition Error"}
+    };
+
+    private final Map<String, MetricAccumulator> buckets;
+
+    /**
+     * Class constructor initializing all buckets empty.
+     */
+    public ErrorTypeMetrics(){
+        buckets = new LinkedHashMap<>();
+        buckets.put(GENERAL, new MetricAccumulator());
+        buckets.put(NO_ERROR, new MetricAccumulator());
+
+        for(String[] errorType: ERROR_TYPES){
+            buckets.put(errorType[1], new MetricAccumulator());
+        }
+    }
+
+    /**
+     * Add a spelling result to the general bucket and all buckets of its error types.
+     * @param correction corpus entry the result was produced for
+     * @param result     spelling result for the query of the corpus entry
+     */
+    public void add(CorpusCorrection correction, SpellingResult result){
+        for(String bucket: getBuckets(correction)){
+            buckets.get(bucket).add(result);
+        }
+    }
+
+    /**
+     * Add the sums of all buckets of another instance, e.g. of a partial run.
+     * @param other metrics to merge into this instance
+     */
+    public void merge(ErrorTypeMetrics other){
+        for(Map.Entry<String, MetricAccumulator> entry: other.buckets.entrySet()){
+            buckets.get(entry.getKey()).merge(entry.getValue());
+        }
+    }
+
+    /**
+     * Store the sums of all buckets, e.g. to checkpoint an evaluation run.
+     * @param properties properties to store the sums in
+     */
+    public void store(Properties properties){
+        for(Map.Entry<String, MetricAccumulator> entry: buckets.entrySet()){
+            entry.getValue().store(properties, entry.getKey());
+        }
+    }
+
+    /**
+     * Replace the sums of all buckets by previously stored ones.
+     * @param properties properties containing the sums
+     */
+    public void load(Properties properties){
+        for(Map.Entry<String, MetricAccumulator> entry: buckets.entrySet()){
+            entry.getValue().load(properties, entry.getKey());
+        }
+    }
+
+    /**
+     * Get the accumulated measures of a bucket.
+     * @param bucket name of bucket, e.g. {@link #GENERAL}
+     * @return       accumulated measures
+     */
+    public MetricAccumulator get(String bucket){
+        return buckets.get(bucket);
+    }
+
+    /**
+     * Get all buckets in report order.
+     * @return mapping of bucket name and accumulated measures
+     */
+    public Map<String, MetricAccumulator> getAll(){
+        return buckets;
+    }
+
+    /**
+     * Get the names of all buckets a corpus entry belongs to.
+     * @param correction corpus entry
+     * @return           bucket names in report order
+     */
+    public static String[] getBuckets(CorpusCorrection correction){
+        String[] matches = new String[ERROR_TYPES.length + 2];
+        int numMatches = 0;
+
+        matches[numMatches++] = GENERAL;
+
+        if(!correction.isDefinitelyMisspelled() && !correction.isPotentiallyMisspelled()){
+            matches[numMatches++] = NO_ERROR;
+        }
+
+        for(String[] errorType: ERROR_TYPES){
+            if(correction.hasErrorAnnotation(errorType[0])){
+                matches[numMatches++] = errorType[1];
+            }
+        }
+
+        String[] result = new String[numMatches];
+        System.arraycopy(matches, 0, result, 0, numMatches);
+
+        return result;
+    }
+
+    /**
+     * Print EF1 and Precision@1 of all buckets.
+     * @param out stream to print to
+     */
+    public void print(PrintStream out){
+        for(Map.Entry<String, MetricAccumulator> entry: buckets.entrySet()){
+            out.println("---------------");
+            out.println(entry.getKey()+":");
+            out.println(entry.getValue().getEF1());
+            out.println("Precision@1: "+entry.getValue().getPrecision());
+            out.println("---------------");
+            out.println();
+        }
+    }
+}
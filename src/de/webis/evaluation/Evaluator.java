@@ -1,33 +1,95 @@
 package de.webis.evaluation;
 
-import de.webis.datastructures.SpellingResult;
 import de.webis.datastructures.CorpusCorrection;
+import de.webis.datastructures.EF1;
+import de.webis.datastructures.MetricAccumulator;
+import de.webis.datastructures.RankedCandidates;
+import de.webis.datastructures.SpellingResult;
+import de.webis.parser.ConfidencesParser;
 import de.webis.parser.CorpusParser;
-import de.webis.parser.ErrorAnnotationParser;
 import de.webis.parser.WebisParser;
 import de.webis.speller.*;
 import de.webis.utils.MathUtil;
-import org.apache.commons.lang3.StringUtils;
 
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Evaluation class to get statistic measures of a corpora or to
  * determine the quality of a spelling algorithm.
  */
 public class Evaluator {
+    private static final int FLUSH_INTERVAL = 1000;
+
     private final String timeStamp;
+    private final boolean resume;
+
+    private int checkpointInterval = FLUSH_INTERVAL;
+    private int batchSize = 1;
+    private boolean compressOutput = false;
+    private ResultWriter.SyncPolicy syncPolicy = ResultWriter.SyncPolicy.ON_FLUSH;
 
     public Evaluator(){
         DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd--HH-mm-ss");
         LocalDateTime now = LocalDateTime.now();
         timeStamp = dateTimeFormatter.format(now);
+        resume = false;
+    }
+
+    /**
+     * Class constructor resuming an aborted evaluation run. Spellers with a checkpoint in
+     * <code>./data/evaluation-logs/&lt;timeStamp&gt;/</code> continue after their last
+     * checkpointed query, all others start from the beginning.
+     * @param timeStamp time stamp of the run to resume, e.g. 2017-01-31--12-00-00
+     */
+    public Evaluator(String timeStamp){
+        this.timeStamp = timeStamp;
+        resume = true;
+    }
+
+    /**
+     * Set the number of queries after which progress and measures of an evaluation run
+     * get checkpointed. Checkpoints are taken at block boundaries, i.e. at most every
+     * {@value #FLUSH_INTERVAL} queries.
+     * @param checkpointInterval number of queries between checkpoints, 0 disables checkpoints
+     */
+    public void setCheckpointInterval(int checkpointInterval){
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Set the number of queries handed to {@link Speller#spellBatch(List)} at once. Batches
+     * don't span blocks of {@value #FLUSH_INTERVAL} queries. Larger batches let spellers share
+     * lookups between queries, at the cost of coarser latency measurements.
+     * @param batchSize number of queries spelled at once, 1 spells queries one by one
+     */
+    public void setBatchSize(int batchSize){
+        if(batchSize < 1){
+            throw new IllegalArgumentException("Batch size must be positive: "+batchSize);
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set whether confidences files get gzip compressed (written as <code>*-confidences.csv.gz</code>).
+     * @param compressOutput true to compress confidences files
+     */
+    public void setCompressOutput(boolean compressOutput){
+        this.compressOutput = compressOutput;
+    }
+
+    /**
+     * Set when confidences files get synced to disk. With
+     * {@link ResultWriter.SyncPolicy#NEVER} a checkpoint may refer to output lost by a
+     * system crash.
+     * @param syncPolicy policy when to sync confidences files
+     */
+    public void setSyncPolicy(ResultWriter.SyncPolicy syncPolicy){
+        this.syncPolicy = syncPolicy;
     }
 
     /**
@@ -36,277 +98,352 @@ public class Evaluator {
      * @param parser            parser specifying corpus to evaluate on
      */
     public void evaluateSpeller(Speller spellAlgorithm, CorpusParser parser){
-        System.out.println("Evaluate "+spellAlgorithm.getSpellTag()+" algorithm on "+parser.getCorpusTag()+"...");
-        List<CorpusCorrection> corpusCorrections = parser.parse();
-        List<SpellingResult> spellingResults = new ArrayList<>();
+        evaluateSpeller(spellAlgorithm, parser, 1);
+    }
 
-        List<SpellingResult> spellingSpaceError = new ArrayList<>();
-        List<SpellingResult> spellingCharacterError = new ArrayList<>();
-        List<SpellingResult> spellingInsertionError = new ArrayList<>();
-        List<SpellingResult> spellingDeletionError = new ArrayList<>();
-        List<SpellingResult> spellingSubstitutionError = new ArrayList<>();
-        List<SpellingResult> spellingTranspositionError = new ArrayList<>();
+    /**
+     * Print EF1 and Precision@1 measures to evaluate a spelling algorithm. Queries are
+     * spelled by the given number of worker threads in blocks of {@value #FLUSH_INTERVAL}
+     * queries, results are collected in corpus order. The speller gets flushed after each
+     * block, so it must be safe for concurrent use if more than one worker is used.
+     * @param spellAlgorithm    algorithm to evaluate
+     * @param parser            parser specifying corpus to evaluate on
+     * @param numThreads        number of worker threads spelling queries
+     */
+    public void evaluateSpeller(Speller spellAlgorithm, CorpusParser parser, int numThreads){
+        evaluateSpellers(Collections.singletonList(spellAlgorithm), parser, numThreads);
+    }
+
+    /**
+     * Print EF1 and Precision@1 measures of several spelling algorithms side by side.
+     * @param spellAlgorithms   algorithms to evaluate
+     * @param parser            parser specifying corpus to evaluate on
+     */
+    public void evaluateSpellers(List<Speller> spellAlgorithms, CorpusParser parser){
+        evaluateSpellers(spellAlgorithms, parser, 1);
+    }
 
-        List<SpellingResult> spellingWithoutError = new ArrayList<>();
+    /**
+     * Print EF1 and Precision@1 measures of several spelling algorithms side by side.
+     * The corpus gets parsed once and each of its entries is handed to all algorithms,
+     * which spell it concurrently if more than one worker is used. Queries are handed to
+     * the algorithms in batches of the configured batch size.
+     * @param spellAlgorithms   algorithms to evaluate
+     * @param parser            parser specifying corpus to evaluate on
+     * @param numThreads        number of worker threads spelling queries
+     */
+    public void evaluateSpellers(List<Speller> spellAlgorithms, CorpusParser parser, int numThreads){
+        List<SpellerEvaluation> evaluations = new ArrayList<>();
+        StringBuilder tags = new StringBuilder();
+
+        for(Speller spellAlgorithm: spellAlgorithms){
+            evaluations.add(new SpellerEvaluation(spellAlgorithm, "./data/evaluation-logs/"+timeStamp
+                    +"/"+parser.getCorpusTag()+"-"+spellAlgorithm.getSpellTag(), compressOutput, syncPolicy));
+            tags.append(tags.length() == 0 ? "" : ", ").append(spellAlgorithm.getSpellTag());
+        }
 
-        Map<String, Double> spelling;
+        System.out.println("Evaluate "+tags+" algorithm"+(spellAlgorithms.size() > 1 ? "s" : "")
+                +" on "+parser.getCorpusTag()
+                +(numThreads > 1 ? " with "+numThreads+" threads" : "")+"...");
+        List<CorpusCorrection> corpusCorrections = parser.parse();
 
-        for(CorpusCorrection corpusCorrection: corpusCorrections){
-            spelling = spellAlgorithm.spell(corpusCorrection.getQuery());
-            SpellingResult result = new SpellingResult(corpusCorrection.getQuery(),
-                    corpusCorrection.getGroundTruth(),
-                    spelling);
+        ExecutorService executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads) : null;
+        int numProcessed = 0;
+        int lastCheckpoint = 0;
 
-            spellingResults.add(result);
+        try {
+            int numCompleted = corpusCorrections.size();
 
-            if(corpusCorrection.hasErrorAnnotation("space")){
-                spellingSpaceError.add(result);
+            for(SpellerEvaluation evaluation: evaluations){
+                evaluation.open(corpusCorrections, resume);
+                numCompleted = Math.min(numCompleted, evaluation.getNumCompleted());
             }
 
-            if(corpusCorrection.hasErrorAnnotation("character")){
-                spellingCharacterError.add(result);
-            }
+            numProcessed = numCompleted - numCompleted % FLUSH_INTERVAL;
+            lastCheckpoint = numProcessed;
 
-            if(corpusCorrection.hasErrorAnnotation("insertion")){
-                spellingInsertionError.add(result);
-            }
+            for(int from = numProcessed; from < corpusCorrections.size(); from += FLUSH_INTERVAL){
+                List<CorpusCorrection> block = corpusCorrections.subList(from,
+                        Math.min(from + FLUSH_INTERVAL, corpusCorrections.size()));
+                List<List<RankedCandidates>> spellings = spell(evaluations, block, from, executor);
 
-            if(corpusCorrection.hasErrorAnnotation("deletion")){
-                spellingDeletionError.add(result);
-            }
+                for(int i = 0; i < block.size(); i++){
+                    for(int j = 0; j < evaluations.size(); j++){
+                        if(spellings.get(j).get(i) != null){
+                            evaluations.get(j).add(block.get(i), spellings.get(j).get(i));
+                        }
+                    }
 
-            if(corpusCorrection.hasErrorAnnotation("substitution")){
-                spellingSubstitutionError.add(result);
-            }
+                    numProcessed++;
 
-            if(corpusCorrection.hasErrorAnnotation("transposition")){
-                spellingTranspositionError.add(result);
-            }
+                    if(numProcessed % 100 == 0){
+                        System.out.print("\rProcessed queries: "+numProcessed);
+                    }
+                }
 
-            if(!corpusCorrection.isDefinitelyMisspelled() && !corpusCorrection.isPotentiallyMisspelled()){
-                spellingWithoutError.add(result);
-            }
+                if(numProcessed % FLUSH_INTERVAL == 0){
+                    for(Speller spellAlgorithm: spellAlgorithms){
+                        spellAlgorithm.flush();
+                    }
+                }
 
-            if(spellingResults.size() % 100 == 0){
-                System.out.print("\rProcessed queries: "+spellingResults.size());
-            }
+                if(checkpointInterval > 0 && numProcessed - lastCheckpoint >= checkpointInterval){
+                    for(SpellerEvaluation evaluation: evaluations){
+                        evaluation.checkpoint(corpusCorrections);
+                    }
 
-            if(spellingResults.size() % 1000 == 0){
-                spellAlgorithm.flush();
+                    lastCheckpoint = numProcessed;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if(executor != null){
+                executor.shutdownNow();
             }
-        }
-        System.out.print("\rProcessed queries: "+spellingResults.size());
-        System.out.println("\nDone.\n");
 
-        System.out.println("Results:");
-        System.out.println("---------------");
-        System.out.println("General:");
-        System.out.println(SpellingResult.getEF1(spellingResults));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingResults));
-        System.out.println("---------------");
-        System.out.println();
+            System.out.print("\rProcessed queries: "+numProcessed);
+            System.out.println("\nDone.\n");
 
-        System.out.println("---------------");
-        System.out.println("No Error:");
-        System.out.println(SpellingResult.getEF1(spellingWithoutError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingWithoutError));
-        System.out.println("---------------");
-        System.out.println();
+            // also if a worker failed, so the results spelled so far are written and the algorithms closed
+            for(SpellerEvaluation evaluation: evaluations){
+                try {
+                    evaluation.finish();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
 
-        System.out.println("---------------");
-        System.out.println("Space Error:");
-        System.out.println(SpellingResult.getEF1(spellingSpaceError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingSpaceError));
-        System.out.println("---------------");
-        System.out.println();
+        if(evaluations.size() > 1){
+            writeComparison(evaluations, "./data/evaluation-logs/"+timeStamp
+                    +"/"+parser.getCorpusTag()+"-comparison.txt");
+        }
+    }
 
-        System.out.println("---------------");
-        System.out.println("Character Error:");
-        System.out.println(SpellingResult.getEF1(spellingCharacterError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingCharacterError));
-        System.out.println("---------------");
-        System.out.println();
+    /**
+     * Print EF1 and Precision@1 measures recomputed from a confidences file of an earlier
+     * run, without invoking any spelling algorithm. Lines are joined with the corpus by
+     * their id if present, otherwise by their query in corpus order.
+     * @param confidencesPath   location of confidences file
+     * @param parser            parser specifying corpus the confidences were computed on
+     * @return                  bucketed measures
+     */
+    public ErrorTypeMetrics rescore(String confidencesPath, CorpusParser parser){
+        System.out.println("Rescore "+confidencesPath+" on "+parser.getCorpusTag()+"...");
 
-        System.out.println("---------------");
-        System.out.println("Insertion Error:");
-        System.out.println(SpellingResult.getEF1(spellingInsertionError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingInsertionError));
-        System.out.println("---------------");
-        System.out.println();
+        Map<String, CorpusCorrection> correctionsById = new HashMap<>();
+        Map<String, Deque<CorpusCorrection>> correctionsByQuery = new HashMap<>();
 
-        System.out.println("---------------");
-        System.out.println("Deletion Error:");
-        System.out.println(SpellingResult.getEF1(spellingDeletionError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingDeletionError));
-        System.out.println("---------------");
-        System.out.println();
+        parser.parse((correction, annotations) -> {
+            if(correction.getId() != null){
+                correctionsById.put(correction.getId(), correction);
+            }
 
-        System.out.println("---------------");
-        System.out.println("Substitution Error:");
-        System.out.println(SpellingResult.getEF1(spellingSubstitutionError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingSubstitutionError));
-        System.out.println("---------------");
-        System.out.println();
+            correctionsByQuery.computeIfAbsent(correction.getQuery(), key -> new ArrayDeque<>()).add(correction);
+        });
 
-        System.out.println("---------------");
-        System.out.println("Transposition Error:");
-        System.out.println(SpellingResult.getEF1(spellingTranspositionError));
-        System.out.println("Precision@1: "+SpellingResult.getPrecision(spellingTranspositionError));
-        System.out.println("---------------");
-        System.out.println();
+        ErrorTypeMetrics metrics = new ErrorTypeMetrics();
+        int[] numLines = {0, 0};
 
         try {
-            writeFile(spellingResults, "./data/evaluation-logs/"+timeStamp
-                    +"/"+parser.getCorpusTag()+"-"+spellAlgorithm.getSpellTag()+"-confidences.csv");
+            new ConfidencesParser(confidencesPath).parse((id, query, confidences) -> {
+                CorpusCorrection correction = id != null ? correctionsById.get(id) : null;
 
-            PrintWriter writer = new PrintWriter(new FileWriter("./data/evaluation-logs/"+timeStamp
-                    +"/"+parser.getCorpusTag()+"-"+spellAlgorithm.getSpellTag()+"-ef1.txt"));
+                if(correction == null && correctionsByQuery.containsKey(query)){
+                    correction = correctionsByQuery.get(query).poll();
+                }
 
-            writer.println(SpellingResult.getEF1(spellingResults));
-            writer.println("Precision@1: "+SpellingResult.getPrecision(spellingResults));
+                numLines[0]++;
 
-            writer.close();
+                if(correction == null || !correction.getQuery().equals(query)){
+                    numLines[1]++;
+                    return;
+                }
 
+                metrics.add(correction, new SpellingResult(query, correction.getGroundTruth(), confidences));
+            });
         } catch (IOException e) {
             e.printStackTrace();
         }
 
-        spellAlgorithm.close();
+        System.out.println("Rescored lines: "+numLines[0]+" ("+numLines[1]+" not found in corpus)\n");
+        System.out.println("Results:");
+        metrics.print(System.out);
+
+        return metrics;
     }
 
     /**
      * Print out statistical measures of the specified corpus.
      * @param parser    corpus for analysis
+     * @return          statistical measures of the corpus
      */
-    public void analyzeCorpus(CorpusParser parser){
-        Integer sumMinLevenshteinDistDefinite = 0;
-        Integer sumMinLevenhsteinDist = 0;
-
-        Map<Integer, Integer> levenshteinDistPotential = new HashMap<>();
-        Map<Integer, Integer> levenshteinDistDefinite = new HashMap<>();
-
-        List<CorpusCorrection> corpusCorrections = parser.parse();
+    public CorpusStatistics analyzeCorpus(CorpusParser parser){
+        return analyzeCorpus(parser, Runtime.getRuntime().availableProcessors());
+    }
 
-        List<CorpusCorrection> potentialMisspellings = new ArrayList<>();
-        List<CorpusCorrection> definiteMisspellings = new ArrayList<>();
+    /**
+     * Print out statistical measures of the specified corpus.
+     * @param parser        corpus for analysis
+     * @param numThreads    number of threads computing distances
+     * @return              statistical measures of the corpus
+     */
+    public CorpusStatistics analyzeCorpus(CorpusParser parser, int numThreads){
+        CorpusStatistics statistics = CorpusStatistics.compute(parser, numThreads);
+
+        System.out.println("Corpus: "+statistics.getCorpusTag());
+        System.out.println("Size: "+statistics.getCorpusSize()+"\n");
+        System.out.println("Potential Misspellings: "+statistics.getNumPotentialMisspellings()
+                +" ("+statistics.getPotentialMisspellingPercentage()+"%)");
+        System.out.println("Definite Misspellings:  "+statistics.getNumDefiniteMisspellings()
+                +" ("+statistics.getDefiniteMisspellingPercentage()+"%)");
+        System.out.println("Potential + Definite:   "+statistics.getNumMisspellings()
+                +" ("+statistics.getMisspellingPercentage()+"%)\n");
+
+        System.out.println("Avg. min. Levenshtein distance (definite): "+statistics.getAvgMinLevenshteinDistDefinite());
+        System.out.println("Avg. min. Levenshtein distance (potential + definite): "
+                +statistics.getAvgMinLevenshteinDist()+"\n");
+
+        System.out.println("Number of spelling variants per query (potential): "
+                +statistics.getNumSpellingVariantsPerQueryPotential());
+        System.out.println("Number of spelling variants per query (definite): "
+                +statistics.getNumSpellingVariantsPerQueryDefinite()+"\n");
+
+        System.out.println("Levenshtein distance frequencies (potential): \n"+statistics.getLevenshteinDistPotential());
+        System.out.println("Levenshtein distance frequencies (definite): \n"+statistics.getLevenshteinDistDefinite());
+
+        Map<String, Double> numQueriesWithErrorType = new HashMap<>(statistics.getNumQueriesWithErrorType());
+        Map<String, Double> numSpellingsWithErrorType = new HashMap<>(statistics.getNumSpellingsWithErrorType());
+        double numMisspellings = statistics.getNumMisspellings();
+        double numSpellingVariants = statistics.getNumSpellingVariantsDefinite()
+                + statistics.getNumSpellingVariantsPotential();
 
-        Integer numSpellingVariantsPotential = 0;
-        Integer numSpellingVariantsDefinite = 0;
+        System.out.println();
+        System.out.println("Number of queries with error:");
+        System.out.println(numQueriesWithErrorType);
+        numQueriesWithErrorType.replaceAll((key, value) -> MathUtil.roundDouble(value / numMisspellings, 4));
+        System.out.println(numQueriesWithErrorType);
+        System.out.println();
+        System.out.println();
+        System.out.println("Number of spelling variants with error:");
+        System.out.println(numSpellingsWithErrorType);
+        numSpellingsWithErrorType.replaceAll((key, value) -> MathUtil.roundDouble(value / numSpellingVariants, 4));
+        System.out.println(numSpellingsWithErrorType);
+        System.out.println();
 
-        for(CorpusCorrection correction: corpusCorrections){
-            if(correction.containsError()) {
-                if(correction.isPotentiallyMisspelled()){
-                    potentialMisspellings.add(correction);
-                    numSpellingVariantsPotential += correction.getGroundTruth().size();
-                }
+        return statistics;
+    }
 
+    private List<List<RankedCandidates>> spell(List<SpellerEvaluation> evaluations, List<CorpusCorrection> corrections,
+                                                  int offset, ExecutorService executor){
+        List<Callable<List<RankedCandidates>>> tasks = new ArrayList<>();
 
-                if(correction.isDefinitelyMisspelled()){
-                    definiteMisspellings.add(correction);
-                    numSpellingVariantsDefinite += correction.getGroundTruth().size();
-                }
+        for(int from = 0; from < corrections.size(); from += batchSize){
+            int to = Math.min(from + batchSize, corrections.size());
 
+            for(SpellerEvaluation evaluation: evaluations){
+                // entries already evaluated before resuming are skipped
+                List<CorpusCorrection> batch = corrections.subList(
+                        Math.min(to, Math.max(from, evaluation.getNumCompleted() - offset)), to);
 
-                Integer minLevenshteinDistDefinite = Integer.MAX_VALUE;
-                Integer minLevenshteinDist = Integer.MAX_VALUE;
+                tasks.add(batch.isEmpty() ? Collections::emptyList : () -> evaluation.spell(batch));
+            }
+        }
 
-                for (String desSpellingVariant : correction.getGroundTruth()) {
-                    int distance = StringUtils.getLevenshteinDistance(desSpellingVariant, correction.getQuery());
+        List<List<RankedCandidates>> results = new ArrayList<>(tasks.size());
 
-                    if(correction.isPotentiallyMisspelled()){
-                        levenshteinDistPotential.put(distance, levenshteinDistPotential.getOrDefault(distance, 0) + 1);
-                    }
+        try {
+            if(executor == null){
+                for(Callable<List<RankedCandidates>> task: tasks){
+                    results.add(task.call());
+                }
+            }
+            else{
+                for(Future<List<RankedCandidates>> future: executor.invokeAll(tasks)){
+                    results.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
 
-                    if(correction.isDefinitelyMisspelled()){
-                        levenshteinDistDefinite.put(distance, levenshteinDistDefinite.getOrDefault(distance, 0) + 1);
+            throw new RuntimeException(e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
 
-                        if(minLevenshteinDistDefinite > distance && !desSpellingVariant.equals(correction.getQuery())){
-                            minLevenshteinDistDefinite = distance;
-                        }
-                    }
+        List<List<RankedCandidates>> spellings = new ArrayList<>(evaluations.size());
 
-                    if(correction.isDefinitelyMisspelled() || correction.isPotentiallyMisspelled())
-                    if(minLevenshteinDist > distance){
-                        minLevenshteinDist = distance;
-                    }
-                }
+        for(int j = 0; j < evaluations.size(); j++){
+            spellings.add(new ArrayList<>(corrections.size()));
+        }
 
-                if(minLevenshteinDistDefinite != Integer.MAX_VALUE)
-                    sumMinLevenshteinDistDefinite += minLevenshteinDistDefinite;
+        // skipped entries keep a null spelling
+        for(int i = 0; i < results.size(); i++){
+            List<RankedCandidates> spellerSpellings = spellings.get(i % evaluations.size());
+            int batchLength = Math.min(batchSize, corrections.size() - i / evaluations.size() * batchSize);
 
-                if(minLevenshteinDist != Integer.MAX_VALUE)
-                    sumMinLevenhsteinDist += minLevenshteinDist;
+            for(int k = results.get(i).size(); k < batchLength; k++){
+                spellerSpellings.add(null);
             }
 
+            spellerSpellings.addAll(results.get(i));
         }
 
-        int numPotentialMisspellings = potentialMisspellings.size();
-        int numDefiniteMisspellings = definiteMisspellings.size();
-        int numMisspellings = numPotentialMisspellings + numDefiniteMisspellings;
+        return spellings;
+    }
 
-        int corpusSize = corpusCorrections.size();
+    private void writeComparison(List<SpellerEvaluation> evaluations, String path){
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s", "Bucket"));
 
-        double misspellingPercentage = MathUtil.roundDouble((double)(numMisspellings) / (double)(corpusSize) * 100.0, 2);
-        double potentialMisspellingPercentage = MathUtil.roundDouble((double)(numPotentialMisspellings) / (double)(corpusSize) * 100.0, 2);
-        double definiteMisspellingPercentage = MathUtil.roundDouble((double)(numDefiniteMisspellings) / (double)(corpusSize) * 100.0, 2);
+        for(SpellerEvaluation evaluation: evaluations){
+            report.append(String.format(" | %-32s", evaluation.getSpeller().getSpellTag()+" (EF1 / EP / ER / P@1)"));
+        }
 
-        double avgMinLevenshteinDistDefinite = MathUtil.roundDouble((double)(sumMinLevenshteinDistDefinite) / (double)(numDefiniteMisspellings),2);
-        double avgMinLevenshteinDist = MathUtil.roundDouble((double)(sumMinLevenhsteinDist) / (double)(numMisspellings),2);
+        report.append("\n");
 
-        double numSpellingVariantsPerQueryPotential = MathUtil.roundDouble((double)(numSpellingVariantsPotential) / (double)(numPotentialMisspellings), 2);
-        double numSpellingVariantsPerQueryDefinite = MathUtil.roundDouble((double)(numSpellingVariantsDefinite) / (double)(numDefiniteMisspellings),2);
+        for(String bucket: evaluations.get(0).getMetrics().getAll().keySet()){
+            report.append(String.format("%-20s", bucket));
 
-        Map<String, Double> numQueriesWithErrorType =
-                ErrorAnnotationParser.getErrorTypeDistributionPerQuery(
-                        parser.getErrorAnnotationPath()
-                );
+            for(SpellerEvaluation evaluation: evaluations){
+                MetricAccumulator accumulator = evaluation.getMetrics().get(bucket);
+                EF1 ef1 = accumulator.getEF1();
 
-        Map<String, Double> numSpellingsWithErrorType =
-                ErrorAnnotationParser.getErrorTypeDistributionPerSpelling(
-                        parser.getErrorAnnotationPath()
-                );
+                report.append(String.format(" | %-32s", ef1.EF1+" / "+ef1.expectedPrecision+" / "
+                        +ef1.expectedRecall+" / "+accumulator.getPrecision()));
+            }
 
-        System.out.println("Corpus: "+parser.getCorpusTag());
-        System.out.println("Size: "+corpusSize+"\n");
-        System.out.println("Potential Misspellings: "+numPotentialMisspellings+" ("+potentialMisspellingPercentage+"%)");
-        System.out.println("Definite Misspellings:  "+numDefiniteMisspellings+" ("+definiteMisspellingPercentage+"%)");
-        System.out.println("Potential + Definite:   "+numMisspellings+" ("+misspellingPercentage+"%)\n");
+            report.append("\n");
+        }
 
-        System.out.println("Avg. min. Levenshtein distance (definite): "+avgMinLevenshteinDistDefinite);
-        System.out.println("Avg. min. Levenshtein distance (potential + definite): "+avgMinLevenshteinDist+"\n");
+        System.out.println("Comparison:");
+        System.out.println(report);
 
-        System.out.println("Number of spelling variants per query (potential): "+numSpellingVariantsPerQueryPotential);
-        System.out.println("Number of spelling variants per query (definite): "+numSpellingVariantsPerQueryDefinite+"\n");
+        try (PrintWriter writer = openWriter(path)) {
+            writer.print(report);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        System.out.println("Levenshtein distance frequencies (potential): \n"+levenshteinDistPotential);
-        System.out.println("Levenshtein distance frequencies (definite): \n"+levenshteinDistDefinite);
+    static PrintWriter openWriter(String path) throws IOException {
+        File file = new File(path);
+        createParentDirectories(file);
 
-        System.out.println();
-        System.out.println("Number of queries with error:");
-        System.out.println(numQueriesWithErrorType);
-        numQueriesWithErrorType.replaceAll((key, value) -> MathUtil.roundDouble(value / (double) numMisspellings, 4));
-        System.out.println(numQueriesWithErrorType);
-        System.out.println();
-        System.out.println();
-        System.out.println("Number of spelling variants with error:");
-        System.out.println(numSpellingsWithErrorType);
-        Integer finalNumSpellingVariantsDefinite = numSpellingVariantsDefinite;
-        Integer finalNumSpellingVariantsPotential = numSpellingVariantsPotential;
-        numSpellingsWithErrorType.replaceAll(
-                (key, value) ->
-                        MathUtil.roundDouble(
-                                value / (double)(finalNumSpellingVariantsDefinite + finalNumSpellingVariantsPotential),4
-                        )
-        );
-        System.out.println(numSpellingsWithErrorType);
-        System.out.println();
+        return new PrintWriter(new BufferedWriter(new FileWriter(file)));
     }
 
-    private void writeFile(List items, String path) throws IOException {
+    static void createParentDirectories(File file) throws IOException {
         boolean succeed = true;
 
-        File file = new File(path);
-
         if(!file.getParentFile().exists()){
             succeed = file.getParentFile().mkdirs();
         }
@@ -314,14 +451,6 @@ public class Evaluator {
         if(!succeed){
             throw new IOException("Can't create parent directories: "+file.getPath());
         }
-
-        PrintWriter writer = new PrintWriter(new FileWriter(file));
-
-        for(Object result: items){
-            writer.println(result);
-        }
-
-        writer.close();
     }
 
     public static void main(String[] args) {
@@ -331,10 +460,9 @@ public class Evaluator {
         evaluator.analyzeCorpus(new WebisParser());
 
         /* WEBIS CORPUS - EF1 Evaluation */
-        evaluator.evaluateSpeller(new BaselineSpeller(), new WebisParser());
-        evaluator.evaluateSpeller(new GoogleSpeller(), new WebisParser());
-        evaluator.evaluateSpeller(new BingSpeller(), new WebisParser());
-        evaluator.evaluateSpeller(new LueckSpeller(), new WebisParser());
+        evaluator.evaluateSpellers(Arrays.asList(
+                new BaselineSpeller(), new GoogleSpeller(), new BingSpeller(), new LueckSpeller()
+        ), new WebisParser());
     }
 
 }
@@ -0,0 +1,252 @@
+package de.webis.evaluation;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming sink appending one line per result to a file. Results are handed over
+ * through a bounded queue and converted and written by a background thread, so the
+ * producer only blocks if the writer falls behind by more than the queue capacity.
+ * Output can be gzip compressed, in which case each {@link #flush()} completes a gzip
+ * member, so the file is readable up to every flushed position.
+ */
+public class ResultWriter implements Closeable {
+    /**
+     * Policy when written data gets synced to the storage device.
+     */
+    public enum SyncPolicy {
+        /** leave syncing to the operating system */
+        NEVER,
+        /** sync on every call of {@link #flush()} and on close */
+        ON_FLUSH,
+        /** sync whenever the background thread has drained the queue */
+        ALWAYS
+    }
+
+    private static final Object CLOSE = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final FileOutputStream fileStream;
+    private final boolean gzip;
+    private final SyncPolicy syncPolicy;
+    private final Thread thread;
+
+    private Writer writer;
+    private volatile IOException error;
+
+    /**
+     * Class constructor opening the given file.
+     * @param file          file to write to
+     * @param append        true to append to an existing file, false to truncate it
+     * @param gzip          true to compress the output
+     * @param syncPolicy    policy when to sync the file to disk
+     * @param queueCapacity max. number of results waiting to be written
+     * @throws IOException  if the file can't be opened
+     */
+    public ResultWriter(File file, boolean append, boolean gzip, SyncPolicy syncPolicy, int queueCapacity)
+            throws IOException {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.fileStream = new FileOutputStream(file, append);
+        this.gzip = gzip;
+        this.syncPolicy = syncPolicy;
+
+        thread = new Thread(this::drain, "result-writer-"+file.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Append a result, its string representation gets written as a single line.
+     * @param result result to write
+     * @throws IOException if writing a previous result failed
+     */
+    public void write(Object result) throws IOException {
+        checkError();
+        put(result);
+    }
+
+    /**
+     * Wait until all results handed over so far are written and flush them to the file.
+     * @return             size of the file after flushing in bytes
+     * @throws IOException if writing failed
+     */
+    public long flush() throws IOException {
+        checkError();
+
+        Flush flush = new Flush();
+        put(flush);
+
+        try {
+            // a flush handed over while the background thread exits is never processed
+            while(!flush.done.await(100, TimeUnit.MILLISECONDS)){
+                if(!thread.isAlive()){
+                    checkError();
+                    throw new IOException("Result writer is closed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        checkError();
+
+        return flush.position;
+    }
+
+    /**
+     * Write all pending results and close the file.
+     * @throws IOException if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if(thread.isAlive()){
+            put(CLOSE);
+
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        checkError();
+    }
+
+    private void drain(){
+        Object item = null;
+
+        try {
+            while(true){
+                item = queue.take();
+
+                if(item == CLOSE || item instanceof Flush){
+                    if(writer != null){
+                        writer.flush();
+                        finishMember();
+                    }
+
+                    if(syncPolicy != SyncPolicy.NEVER){
+                        fileStream.getFD().sync();
+                    }
+
+                    if(item == CLOSE){
+                        if(writer != null){
+                            writer.close();
+                        }
+
+                        return;
+                    }
+
+                    ((Flush) item).position = fileStream.getChannel().position();
+                    ((Flush) item).done.countDown();
+                    continue;
+                }
+
+                if(writer == null){
+                    openWriter();
+                }
+
+                writer.write(item.toString());
+                writer.write(System.lineSeparator());
+
+                if(syncPolicy == SyncPolicy.ALWAYS && queue.isEmpty()){
+                    writer.flush();
+                    fileStream.getFD().sync();
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            error = new InterruptedIOException();
+        } catch (RuntimeException e) {
+            error = new IOException(e);
+        } finally {
+            // release producers waiting for a flush that won't happen anymore, including the failed one
+            if(item instanceof Flush){
+                ((Flush) item).done.countDown();
+            }
+
+            for(Object pending: queue){
+                if(pending instanceof Flush){
+                    ((Flush) pending).done.countDown();
+                }
+            }
+
+            queue.clear();
+
+            try {
+                fileStream.close();
+            } catch (IOException e) {
+                if(error == null){
+                    error = e;
+                }
+            }
+        }
+    }
+
+    private void openWriter() throws IOException {
+        OutputStream stream = new FilterOutputStream(fileStream){
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // the file stream stays open across gzip members
+                flush();
+            }
+        };
+
+        if(gzip){
+            stream = new GZIPOutputStream(stream, 64 * 1024);
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(stream, Charset.defaultCharset()), 64 * 1024);
+    }
+
+    private void finishMember() throws IOException {
+        // a new member is started lazily, so a flushed position never ends in a bare gzip header
+        if(gzip){
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void put(Object item) throws IOException {
+        try {
+            while(true){
+                checkError();
+
+                if(!thread.isAlive()){
+                    throw new IOException("Result writer is closed");
+                }
+
+                if(queue.offer(item, 100, TimeUnit.MILLISECONDS)){
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkError() throws IOException {
+        if(error != null){
+            throw error;
+        }
+    }
+
+    private static class Flush {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile long position;
+    }
+}
@@ -0,0 +1,244 @@
+package de.webis.evaluation;
+
+import de.webis.datastructures.CorpusCorrection;
+import de.webis.datastructures.LatencyHistogram;
+import de.webis.datastructures.RankedCandidates;
+import de.webis.datastructures.SpellingResult;
+import de.webis.speller.Speller;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * State of a single spelling algorithm during an evaluation run: its bucketed
+ * measures and latencies, the stream of its confidences file and its checkpoint.
+ */
+class SpellerEvaluation {
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final Speller speller;
+    private final String outputPath;
+    private final ErrorTypeMetrics metrics;
+    private final Map<String, LatencyHistogram> latencies;
+
+    private long startTime;
+    private long endTime;
+
+    private final boolean compress;
+    private final ResultWriter.SyncPolicy syncPolicy;
+
+    private ResultWriter confidencesWriter;
+    private int numCompleted;
+
+    /**
+     * Class constructor.
+     * @param speller    algorithm to evaluate
+     * @param outputPath path prefix of all files written for this algorithm
+     * @param compress   true to gzip the confidences file
+     * @param syncPolicy policy when to sync the confidences file to disk
+     */
+    SpellerEvaluation(Speller speller, String outputPath, boolean compress, ResultWriter.SyncPolicy syncPolicy){
+        this.speller = speller;
+        this.outputPath = outputPath;
+        this.compress = compress;
+        this.syncPolicy = syncPolicy;
+        this.metrics = new ErrorTypeMetrics();
+        this.latencies = new LinkedHashMap<>();
+
+        for(String bucket: metrics.getAll().keySet()){
+            latencies.put(bucket, new LatencyHistogram());
+        }
+    }
+
+    Speller getSpeller(){
+        return speller;
+    }
+
+    ErrorTypeMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Get the number of leading corpus entries already evaluated.
+     * @return number of evaluated corpus entries
+     */
+    int getNumCompleted(){
+        return numCompleted;
+    }
+
+    /**
+     * Open the confidences file of this algorithm. If resuming and a checkpoint exists,
+     * the measures are restored and the confidences file is cut back to the checkpoint.
+     * @param corrections parsed corpus, used to verify the checkpoint
+     * @param resume      true to continue from an existing checkpoint
+     * @throws IOException if the files can't be read or created
+     */
+    void open(List<CorpusCorrection> corrections, boolean resume) throws IOException {
+        File confidencesFile = new File(outputPath+"-confidences.csv"+(compress ? ".gz" : ""));
+        File checkpointFile = new File(outputPath+"-checkpoint.properties");
+        long confidencesLength = 0;
+
+        if(resume && checkpointFile.exists()){
+            Properties checkpoint = new Properties();
+
+            try (InputStream stream = new BufferedInputStream(new FileInputStream(checkpointFile))) {
+                checkpoint.load(stream);
+            }
+
+            numCompleted = Integer.parseInt(checkpoint.getProperty("completed"));
+
+            if(numCompleted > corrections.size() || (numCompleted > 0 && !getKey(corrections.get(numCompleted - 1))
+                    .equals(checkpoint.getProperty("last"))) || !confidencesFile.exists()){
+                throw new IllegalStateException("Checkpoint doesn't match corpus: "+checkpointFile.getPath());
+            }
+
+            metrics.load(checkpoint);
+            confidencesLength = Long.parseLong(checkpoint.getProperty("confidences.length"));
+
+            System.out.println("Resume "+speller.getSpellTag()+" after "+numCompleted+" queries.");
+        }
+
+        Evaluator.createParentDirectories(confidencesFile);
+
+        try (RandomAccessFile file = new RandomAccessFile(confidencesFile, "rw")) {
+            file.setLength(confidencesLength);
+        }
+
+        confidencesWriter = new ResultWriter(confidencesFile, true, compress, syncPolicy, QUEUE_CAPACITY);
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Spell the queries of several corpus entries with a single call of the algorithm and
+     * record the latency in all buckets of each entry. The latency of a batch is attributed
+     * to its queries in equal shares. May be called concurrently.
+     * @param corrections corpus entries
+     * @return            corrections and confidences returned by the algorithm for each entry
+     */
+    List<RankedCandidates> spell(List<CorpusCorrection> corrections){
+        List<String> queries = new ArrayList<>(corrections.size());
+
+        for(CorpusCorrection correction: corrections){
+            queries.add(correction.getQuery());
+        }
+
+        long start = System.nanoTime();
+        List<RankedCandidates> spellings = queries.size() == 1
+                ? Collections.singletonList(speller.spellRanked(queries.get(0)))
+                : speller.spellRankedBatch(queries);
+        long latency = (System.nanoTime() - start) / Math.max(1, queries.size());
+
+        for(CorpusCorrection correction: corrections){
+            for(String bucket: ErrorTypeMetrics.getBuckets(correction)){
+                latencies.get(bucket).record(latency);
+            }
+        }
+
+        return spellings;
+    }
+
+    /**
+     * Add the spelling of a corpus entry to the measures and the confidences file.
+     * @param correction corpus entry
+     * @param spelling   corrections and confidences returned by the algorithm
+     * @throws IOException if writing the confidences file failed
+     */
+    void add(CorpusCorrection correction, RankedCandidates spelling) throws IOException {
+        SpellingResult result = new SpellingResult(correction.getQuery(),
+                correction.getGroundTruth(),
+                spelling);
+
+        metrics.add(correction, result);
+        confidencesWriter.write(result);
+        numCompleted++;
+    }
+
+    /**
+     * Persist progress and measures. The confidences file is flushed, and synced to disk
+     * unless the sync policy is {@link ResultWriter.SyncPolicy#NEVER}, before the checkpoint
+     * gets replaced atomically, so a checkpoint doesn't refer to lost output.
+     * @param corrections parsed corpus
+     * @throws IOException if the checkpoint can't be written
+     */
+    void checkpoint(List<CorpusCorrection> corrections) throws IOException {
+        long confidencesLength = confidencesWriter.flush();
+
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("completed", Integer.toString(numCompleted));
+        checkpoint.setProperty("last", numCompleted > 0 ? getKey(corrections.get(numCompleted - 1)) : "");
+        checkpoint.setProperty("confidences.length", Long.toString(confidencesLength));
+        metrics.store(checkpoint);
+
+        File checkpointFile = new File(outputPath+"-checkpoint.properties");
+        File tmpFile = new File(outputPath+"-checkpoint.properties.tmp");
+
+        try (OutputStream stream = new FileOutputStream(tmpFile)) {
+            checkpoint.store(stream, speller.getSpellTag());
+        }
+
+        Files.move(tmpFile.toPath(), checkpointFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Print the measures of all buckets, write the EF1 file and close the algorithm.
+     */
+    void finish(){
+        endTime = System.nanoTime();
+
+        if(confidencesWriter != null){
+            try {
+                confidencesWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        System.out.println("Results ("+speller.getSpellTag()+"):");
+        metrics.print(System.out);
+
+        try (PrintWriter writer = Evaluator.openWriter(outputPath+"-ef1.txt")) {
+            writer.println(metrics.get(ErrorTypeMetrics.GENERAL).getEF1());
+            writer.println("Precision@1: "+metrics.get(ErrorTypeMetrics.GENERAL).getPrecision());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        writeLatencies();
+        speller.close();
+    }
+
+    private void writeLatencies(){
+        long numSpelled = latencies.get(ErrorTypeMetrics.GENERAL).getCount();
+        double seconds = (endTime - startTime) / 1.0e9;
+
+        try (PrintWriter writer = Evaluator.openWriter(outputPath+"-latency.txt")) {
+            writer.println("Queries: "+numSpelled);
+            writer.println(String.format(Locale.ROOT, "Throughput: %.1f queries/s", numSpelled / seconds));
+            writer.println();
+            writer.println(String.format(Locale.ROOT, "%-20s %8s %10s %10s %10s %10s %10s %10s",
+                    "Bucket", "Queries", "Mean [ms]", "p50 [ms]", "p90 [ms]", "p99 [ms]", "p99.9 [ms]", "Max [ms]"));
+
+            for(Map.Entry<String, LatencyHistogram> entry: latencies.entrySet()){
+                LatencyHistogram histogram = entry.getValue();
+
+                writer.println(String.format(Locale.ROOT, "%-20s %8d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f",
+                        entry.getKey(), histogram.getCount(),
+                        histogram.getMean() / 1.0e6,
+                        histogram.getValueAtPercentile(50.0) / 1.0e6,
+                        histogram.getValueAtPercentile(90.0) / 1.0e6,
+                        histogram.getValueAtPercentile(99.0) / 1.0e6,
+                        histogram.getValueAtPercentile(99.9) / 1.0e6,
+                        histogram.getMax() / 1.0e6));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String getKey(CorpusCorrection correction){
+        return correction.getId() != null ? correction.getId() : correction.getQuery();
+    }
+}
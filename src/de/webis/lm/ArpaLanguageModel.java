@@ -0,0 +1,363 @@
+package de.webis.lm;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Offline backoff n-gram language model read from a file in ARPA format, optionally
+ * gzipped. On first use the model is compiled into a binary file next to it, which is
+ * memory-mapped by later instances, so the n-grams don't occupy the heap and get paged in
+ * by the operating system on demand.
+ * <p>
+ * The binary file is a hash table with linear probing. An n-gram is stored by a 64 bit
+ * hash of its words, its probability and its backoff weight, both quantized to 16 bit,
+ * which keeps them exact to about 0.001. Queries are scored as sentences, enclosed in
+ * <code>&lt;s&gt;</code> and <code>&lt;/s&gt;</code>, with Katz backoff.
+ */
+public class ArpaLanguageModel implements LanguageModel {
+    private static final long MAGIC = 0x5745424953415250L;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_SIZE = 12;
+    private static final int SEGMENT_ENTRIES = 1 << 27;
+
+    private static final double PROBABILITY_SCALE = 500.0;
+    private static final double BACKOFF_SCALE = 2000.0;
+    private static final double DEFAULT_UNKNOWN_PROBABILITY = -100.0;
+
+    private static final String SENTENCE_START = "<s>";
+    private static final String SENTENCE_END = "</s>";
+
+    private final int order;
+    private final long mask;
+    private final double unknownProbability;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Class constructor. The model gets compiled if the binary file
+     * <code>arpaFile.bin</code> doesn't exist or is older than the ARPA file.
+     * @param arpaFile path to a language model in ARPA format, gzipped if ending with .gz
+     * @throws IOException if the model can't be read or compiled
+     */
+    public ArpaLanguageModel(String arpaFile) throws IOException {
+        File arpa = new File(arpaFile);
+        File binary = new File(arpaFile+".bin");
+
+        if(!binary.exists() || binary.lastModified() < arpa.lastModified()){
+            compile(arpa, binary);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(binary, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            if(header.getLong(0) != MAGIC){
+                throw new IOException("Not a compiled language model: "+binary.getPath());
+            }
+
+            order = header.getInt(8);
+            unknownProbability = header.getDouble(12);
+            long capacity = header.getLong(20);
+
+            mask = capacity - 1;
+            segments = map(channel, FileChannel.MapMode.READ_ONLY, capacity);
+        }
+    }
+
+    /**
+     * Gets the probability of the words of the given query as a sentence.
+     * @param query words separated by spaces
+     * @return      decimal logarithm of the joint probability of the query
+     */
+    @Override
+    public double getJointProbability(String query) {
+        String trimmed = query.trim();
+        String[] words = trimmed.isEmpty() ? new String[0] : trimmed.split("[ ]+");
+        long[] hashes = new long[words.length + 2];
+
+        hashes[0] = hashWord(SENTENCE_START);
+        hashes[hashes.length - 1] = hashWord(SENTENCE_END);
+
+        for(int i = 0; i < words.length; i++){
+            hashes[i + 1] = hashWord(words[i]);
+        }
+
+        double probability = 0.0;
+
+        for(int i = 1; i < hashes.length; i++){
+            probability += getConditionalProbability(hashes, Math.max(0, i - order + 1), i);
+        }
+
+        return probability;
+    }
+
+    /**
+     * Get the order of the model, the number of words of its longest n-grams.
+     * @return order of the model
+     */
+    public int getOrder(){
+        return order;
+    }
+
+    /**
+     * Probability of the word at <code>end</code> given the preceding words from
+     * <code>start</code> on. The longest known n-gram is used, the backoff weights of all
+     * longer contexts are added.
+     */
+    private double getConditionalProbability(long[] hashes, int start, int end){
+        double backoff = 0.0;
+
+        for(int from = start; from <= end; from++){
+            long slot = find(hashNGram(hashes, from, end));
+
+            if(slot >= 0){
+                return backoff + getProbability(slot);
+            }
+
+            if(from < end){
+                long context = find(hashNGram(hashes, from, end - 1));
+
+                if(context >= 0){
+                    backoff += getBackoff(context);
+                }
+            }
+        }
+
+        return backoff + unknownProbability;
+    }
+
+    /**
+     * Probes the hash table for an n-gram.
+     * @return slot of the n-gram or -1 if it isn't contained
+     */
+    private long find(long key){
+        for(long slot = key & mask; ; slot = (slot + 1) & mask){
+            long stored = getSegment(slot).getLong(getOffset(slot));
+
+            if(stored == key){
+                return slot;
+            }
+
+            if(stored == 0){
+                return -1;
+            }
+        }
+    }
+
+    private double getProbability(long slot){
+        return -getSegment(slot).getChar(getOffset(slot) + 8) / PROBABILITY_SCALE;
+    }
+
+    private double getBackoff(long slot){
+        return getSegment(slot).getShort(getOffset(slot) + 10) / BACKOFF_SCALE;
+    }
+
+    private MappedByteBuffer getSegment(long slot){
+        return segments[(int) (slot / SEGMENT_ENTRIES)];
+    }
+
+    private static int getOffset(long slot){
+        return (int) (slot % SEGMENT_ENTRIES) * ENTRY_SIZE;
+    }
+
+    /**
+     * Reads the ARPA file and writes its n-grams into a new binary file, which replaces
+     * the given one once it is complete.
+     */
+    private static void compile(File arpa, File binary) throws IOException {
+        long numNGrams = 0;
+        int order = 0;
+
+        try (BufferedReader reader = open(arpa)) {
+            for(String line; (line = reader.readLine()) != null && !line.startsWith("\\1-grams:"); ){
+                if(line.startsWith("ngram ")){
+                    numNGrams += Long.parseLong(line.substring(line.indexOf('=') + 1).trim());
+                    order++;
+                }
+            }
+        }
+
+        if(order == 0){
+            throw new IOException("Missing \\data\\ section: "+arpa.getPath());
+        }
+
+        // keep the table at most two thirds full, so probes stay short
+        long capacity = Long.highestOneBit(Math.max(16, numNGrams + numNGrams / 2)) << 1;
+        long mask = capacity - 1;
+        double unknownProbability = DEFAULT_UNKNOWN_PROBABILITY;
+
+        File tmpFile = new File(binary.getPath()+".tmp");
+
+        try (RandomAccessFile file = new RandomAccessFile(tmpFile, "rw")) {
+            file.setLength(0);
+            file.setLength(HEADER_SIZE + capacity * ENTRY_SIZE);
+
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_WRITE, capacity);
+
+            try (BufferedReader reader = open(arpa)) {
+                int n = 0;
+
+                for(String line; (line = reader.readLine()) != null; ){
+                    line = line.trim();
+
+                    if(line.isEmpty() || line.startsWith("\\data\\") || line.startsWith("ngram ")){
+                        continue;
+                    }
+
+                    if(line.startsWith("\\end\\")){
+                        break;
+                    }
+
+                    if(line.startsWith("\\")){
+                        n = Integer.parseInt(line.substring(1, line.indexOf('-')));
+                        continue;
+                    }
+
+                    String[] fields = line.split("\\s+");
+
+                    if(n == 0 || fields.length < n + 1){
+                        continue;
+                    }
+
+                    long[] hashes = new long[n];
+
+                    for(int i = 0; i < n; i++){
+                        hashes[i] = hashWord(fields[i + 1]);
+                    }
+
+                    double probability = parseLog(fields[0]);
+                    double backoff = fields.length > n + 1 ? parseLog(fields[n + 1]) : 0.0;
+
+                    if(n == 1 && fields[1].equals("<unk>")){
+                        unknownProbability = probability;
+                    }
+
+                    long key = hashNGram(hashes, 0, n - 1);
+                    long slot = key & mask;
+
+                    for(long stored; (stored = segments[(int) (slot / SEGMENT_ENTRIES)].getLong(getOffset(slot))) != 0
+                            && stored != key; ){
+                        slot = (slot + 1) & mask;
+                    }
+
+                    MappedByteBuffer segment = segments[(int) (slot / SEGMENT_ENTRIES)];
+                    int offset = getOffset(slot);
+
+                    segment.putLong(offset, key);
+                    segment.putChar(offset + 8, (char) Math.round(
+                            Math.min(65535.0, Math.max(0.0, -probability * PROBABILITY_SCALE))));
+                    segment.putShort(offset + 10, (short) Math.round(
+                            Math.min(Short.MAX_VALUE, Math.max(Short.MIN_VALUE, backoff * BACKOFF_SCALE))));
+                }
+            }
+
+            for(MappedByteBuffer segment: segments){
+                segment.force();
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putLong(0, MAGIC);
+            header.putInt(8, order);
+            header.putDouble(12, unknownProbability);
+            header.putLong(20, capacity);
+            ((MappedByteBuffer) header).force();
+        }
+
+        Files.move(tmpFile.toPath(), binary.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the hash table in segments, since a single mapping is limited to 2 GB.
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long capacity)
+            throws IOException {
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((capacity + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+
+        for(int i = 0; i < segments.length; i++){
+            long numEntries = Math.min(SEGMENT_ENTRIES, capacity - (long) i * SEGMENT_ENTRIES);
+            segments[i] = channel.map(mode, HEADER_SIZE + (long) i * SEGMENT_ENTRIES * ENTRY_SIZE,
+                    numEntries * ENTRY_SIZE);
+        }
+
+        return segments;
+    }
+
+    private static BufferedReader open(File arpa) throws IOException {
+        InputStream stream = new FileInputStream(arpa);
+
+        if(arpa.getName().endsWith(".gz")){
+            stream = new GZIPInputStream(stream, 1 << 16);
+        }
+
+        return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static double parseLog(String value){
+        if(value.toLowerCase(Locale.ROOT).startsWith("-inf")){
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of a word.
+     */
+    private static long hashWord(String word){
+        long hash = 0xcbf29ce484222325L;
+
+        for(int i = 0; i < word.length(); i++){
+            hash ^= word.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Order-dependent hash of the words from <code>start</code> to <code>end</code>,
+     * never 0, which marks empty slots.
+     */
+    private static long hashNGram(long[] hashes, int start, int end){
+        long hash = 0;
+
+        for(int i = start; i <= end; i++){
+            hash = (hash + hashes[i]) * 0x9e3779b97f4a7c15L;
+            hash ^= hash >>> 32;
+        }
+
+        return hash == 0 ? 1 : hash;
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.err.println("Usage: ArpaLanguageModel <arpa file> [query...]");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            LanguageModel languageModel = new ArpaLanguageModel(args[0]);
+            System.out.println(String.format(Locale.ROOT, "Loaded model in %.3f ms",
+                    (System.nanoTime() - start) / 1.0e6));
+
+            for(int i = 1; i < args.length; i++){
+                start = System.nanoTime();
+                double probability = languageModel.getJointProbability(args[i]);
+
+                System.out.println(String.format(Locale.ROOT, "%s | %.4f (%.3f ms)",
+                        args[i], probability, (System.nanoTime() - start) / 1.0e6));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
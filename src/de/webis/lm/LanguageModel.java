@@ -0,0 +1,65 @@
+package de.webis.lm;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface of language models estimating how likely a sequence of words is.
+ * Implementations must be safe for concurrent use.
+ */
+public interface LanguageModel {
+    /**
+     * Gets the probability with that the words of the given query occur together.
+     * @param query words separated by spaces
+     * @return      decimal logarithm of the joint probability of the query
+     */
+    double getJointProbability(String query);
+
+    /**
+     * Asynchronous version of {@link #getJointProbability(String)}. By default the
+     * probability is computed by the calling thread.
+     * @param query words separated by spaces
+     * @return      future of the decimal logarithm of the joint probability of the query
+     */
+    default CompletableFuture<Double> getJointProbabilityAsync(String query){
+        return CompletableFuture.completedFuture(getJointProbability(query));
+    }
+
+    /**
+     * Gets the joint probabilities of several queries, requested concurrently by
+     * {@link #getJointProbabilityAsync(String)}.
+     * @param queries words separated by spaces
+     * @return        future of the decimal logarithms of the joint probabilities of the queries
+     */
+    default CompletableFuture<Map<String, Double>> getJointProbabilities(Collection<String> queries){
+        Map<String, CompletableFuture<Double>> requests = new HashMap<>();
+
+        for(String query: queries){
+            requests.computeIfAbsent(query, this::getJointProbabilityAsync);
+        }
+
+        return CompletableFuture.allOf(requests.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, Double> jointProbabilities = new HashMap<>();
+
+            for(Map.Entry<String, CompletableFuture<Double>> request: requests.entrySet()){
+                jointProbabilities.put(request.getKey(), request.getValue().join());
+            }
+
+            return jointProbabilities;
+        });
+    }
+
+    /**
+     * Flushes data gathered by the language model, e.g. logs, keeping it usable.
+     */
+    default void flush(){
+    }
+
+    /**
+     * Releases the resources of the language model, e.g. flushes logs.
+     */
+    default void close(){
+    }
+}
@@ -0,0 +1,215 @@
+package de.webis.lm;
+
+import de.webis.datastructures.BoundedCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Offline word breaker segmenting a text by a bigram language model estimated from word
+ * frequencies, like the segmenter of Peter Norvig. The frequencies are read from files with
+ * one word or pair of words and its count per line, separated by a tab, e.g.
+ * <code>count_1w.txt</code> and <code>count_2w.txt</code> of Norvig's
+ * <a href="http://norvig.com/ngrams/">n-gram data</a>.
+ * <p>
+ * The best separations are found by dynamic programming over the end positions of words,
+ * keeping the k best partial separations per position. Words are looked up in lower case,
+ * the returned words keep the case of the text. Results are cached per text.
+ */
+public class LocalWordSegmenter implements WordBreaker {
+    private static final int MAX_WORD_LENGTH = 20;
+    private static final String SENTENCE_START = "<s>";
+
+    private final Map<String, Long> unigramCounts = new HashMap<>();
+    private final Map<String, Long> bigramCounts = new HashMap<>();
+    private final double logTotal;
+
+    private final BoundedCache<String, List<String>> cache;
+
+    /**
+     * Class constructor.
+     * @param unigramFile   file of word counts
+     * @param bigramFile    file of word pair counts, the words separated by a space, or null
+     *                      to segment by word counts only
+     * @param cacheCapacity max. number of cached texts
+     * @throws IOException  if a file can't be read
+     */
+    public LocalWordSegmenter(String unigramFile, String bigramFile, int cacheCapacity) throws IOException {
+        long total = load(unigramFile, unigramCounts);
+
+        if(bigramFile != null){
+            load(bigramFile, bigramCounts);
+        }
+
+        logTotal = Math.log10(Math.max(1, total));
+        cache = new BoundedCache<>(cacheCapacity);
+    }
+
+    /**
+     * Gets the best separations of a text into words.
+     * @param text          text without whitespaces
+     * @param maxCandidates number of max. separations returned
+     * @return              separations of the text, words separated by spaces, best first
+     */
+    @Override
+    public List<String> getWordBreakCandidates(String text, int maxCandidates) {
+        String key = maxCandidates+"\t"+text;
+        List<String> candidates = cache.get(key);
+
+        if(candidates == null){
+            candidates = Collections.unmodifiableList(segment(text, maxCandidates));
+            cache.put(key, candidates);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Get the cache of this word breaker, e.g. to read its hit and miss counters.
+     * @return cache of the separations
+     */
+    public BoundedCache<String, List<String>> getCache(){
+        return cache;
+    }
+
+    private List<String> segment(String text, int maxCandidates){
+        if(text.isEmpty() || maxCandidates < 1){
+            return new ArrayList<>();
+        }
+
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+
+        // positions of the lower case text must match the text
+        if(lowerCase.length() != text.length()){
+            lowerCase = text;
+        }
+
+        List<List<Segmentation>> best = new ArrayList<>(text.length() + 1);
+        best.add(Collections.singletonList(new Segmentation(null, SENTENCE_START, null, 0, 0.0)));
+
+        for(int end = 1; end <= text.length(); end++){
+            List<Segmentation> segmentations = new ArrayList<>();
+
+            for(int start = Math.max(0, end - MAX_WORD_LENGTH); start < end; start++){
+                String word = lowerCase.substring(start, end);
+                Long count = unigramCounts.get(word);
+                double logProbability = count != null ? Math.log10(count) - logTotal : 1.0 - logTotal - word.length();
+
+                for(Segmentation previous: best.get(start)){
+                    segmentations.add(new Segmentation(previous, word, count, start, previous.logProbability
+                            + getLogProbability(word, previous, logProbability)));
+                }
+            }
+
+            segmentations.sort((first, second) -> Double.compare(second.logProbability, first.logProbability));
+            best.add(segmentations.size() > maxCandidates
+                    ? new ArrayList<>(segmentations.subList(0, maxCandidates)) : segmentations);
+        }
+
+        List<String> candidates = new ArrayList<>(maxCandidates);
+
+        for(Segmentation segmentation: best.get(text.length())){
+            candidates.add(segmentation.toString(text));
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Probability of a word given the previous word, estimated by the count of the pair if
+     * both words are known, otherwise by the probability of the word alone. Unknown words
+     * get a probability decreasing with their length.
+     */
+    private double getLogProbability(String word, Segmentation previous, double unigramLogProbability){
+        if(previous.count == null || bigramCounts.isEmpty()){
+            return unigramLogProbability;
+        }
+
+        Long bigramCount = bigramCounts.get(previous.word+" "+word);
+
+        if(bigramCount == null){
+            return unigramLogProbability;
+        }
+
+        return Math.log10(bigramCount) - Math.log10(previous.count);
+    }
+
+    /**
+     * Reads counts from a file.
+     * @return sum of the counts
+     */
+    private static long load(String file, Map<String, Long> counts) throws IOException {
+        long total = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            for(String line; (line = reader.readLine()) != null; ){
+                int separator = line.lastIndexOf('\t');
+
+                if(separator <= 0){
+                    continue;
+                }
+
+                long count = Long.parseLong(line.substring(separator + 1).trim());
+                counts.merge(line.substring(0, separator).toLowerCase(Locale.ROOT), count, Long::sum);
+                total += count;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Partial separation, linked to the separation of the text before its last word.
+     */
+    private static class Segmentation {
+        private final Segmentation previous;
+        private final String word;
+        private final Long count;
+        private final int start;
+        private final double logProbability;
+
+        private Segmentation(Segmentation previous, String word, Long count, int start, double logProbability){
+            this.previous = previous;
+            this.word = word;
+            this.count = count;
+            this.start = start;
+            this.logProbability = logProbability;
+        }
+
+        /**
+         * Words of the separation, taken from the given text to keep its case.
+         */
+        private String toString(String text){
+            Deque<String> words = new ArrayDeque<>();
+            int end = text.length();
+
+            for(Segmentation segmentation = this; segmentation.previous != null; segmentation = segmentation.previous){
+                words.addFirst(text.substring(segmentation.start, end));
+                end = segmentation.start;
+            }
+
+            return String.join(" ", words);
+        }
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.err.println("Usage: LocalWordSegmenter <unigram counts> <bigram counts> [text...]");
+            return;
+        }
+
+        try {
+            WordBreaker wordBreaker = new LocalWordSegmenter(args[0], args[1], 10000);
+
+            for(int i = 2; i < args.length; i++){
+                System.out.println(args[i]+" | "+wordBreaker.getWordBreakCandidates(args[i], 5));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
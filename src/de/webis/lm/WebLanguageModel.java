@@ -0,0 +1,67 @@
+package de.webis.lm;
+
+import de.webis.api.MicrosoftAPIRequestor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Language model backed by the Microsoft Web-Language-Model API. Probabilities are logged
+ * on disk by {@link MicrosoftAPIRequestor}, so only queries not logged yet are requested.
+ */
+public class WebLanguageModel implements LanguageModel {
+    private final MicrosoftAPIRequestor requestor;
+
+    /**
+     * Class constructor.
+     */
+    public WebLanguageModel(){
+        this(new MicrosoftAPIRequestor());
+    }
+
+    /**
+     * Class constructor sharing a requestor.
+     * @param requestor requestor of the Microsoft APIs
+     */
+    public WebLanguageModel(MicrosoftAPIRequestor requestor){
+        this.requestor = requestor;
+    }
+
+    @Override
+    public double getJointProbability(String query) {
+        return requestor.getJointProbability(query);
+    }
+
+    @Override
+    public CompletableFuture<Double> getJointProbabilityAsync(String query) {
+        return requestor.getJointProbabilityAsync(query);
+    }
+
+    /**
+     * Gets the joint probabilities of several queries. The queries not logged yet are
+     * requested together by a few requests.
+     * @param queries words separated by spaces
+     * @return        future of the decimal logarithms of the joint probabilities of the queries
+     */
+    @Override
+    public CompletableFuture<Map<String, Double>> getJointProbabilities(Collection<String> queries) {
+        return requestor.getJointProbabilitiesAsync(queries);
+    }
+
+    /**
+     * Flushes the logged probabilities to disk.
+     */
+    @Override
+    public void flush() {
+        requestor.flush();
+    }
+
+    /**
+     * Flushes the logged probabilities to disk and closes the requestor.
+     */
+    @Override
+    public void close() {
+        requestor.close();
+    }
+}
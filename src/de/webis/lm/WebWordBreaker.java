@@ -0,0 +1,55 @@
+package de.webis.lm;
+
+import de.webis.api.MicrosoftAPIRequestor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Word breaker backed by the Microsoft Web-Language-Model API. Separations are logged
+ * on disk by {@link MicrosoftAPIRequestor}, so only texts not logged yet are requested.
+ */
+public class WebWordBreaker implements WordBreaker {
+    private final MicrosoftAPIRequestor requestor;
+
+    /**
+     * Class constructor.
+     */
+    public WebWordBreaker(){
+        this(new MicrosoftAPIRequestor());
+    }
+
+    /**
+     * Class constructor sharing a requestor.
+     * @param requestor requestor of the Microsoft APIs
+     */
+    public WebWordBreaker(MicrosoftAPIRequestor requestor){
+        this.requestor = requestor;
+    }
+
+    @Override
+    public List<String> getWordBreakCandidates(String text, int maxCandidates) {
+        return requestor.getWordBreakCandidates(text, maxCandidates);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getWordBreakCandidatesAsync(String text, int maxCandidates) {
+        return requestor.getWordBreakCandidatesAsync(text, maxCandidates);
+    }
+
+    /**
+     * Flushes the logged separations to disk.
+     */
+    @Override
+    public void flush() {
+        requestor.flush();
+    }
+
+    /**
+     * Flushes the logged separations to disk and closes the requestor.
+     */
+    @Override
+    public void close() {
+        requestor.close();
+    }
+}
@@ -0,0 +1,41 @@
+package de.webis.lm;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface of word breakers inserting spaces into text written without them.
+ * Implementations must be safe for concurrent use.
+ */
+public interface WordBreaker {
+    /**
+     * Gets possible separations of a text into words.
+     * @param text          text without whitespaces
+     * @param maxCandidates number of max. separations returned
+     * @return              separations of the text, words separated by spaces, best first
+     */
+    List<String> getWordBreakCandidates(String text, int maxCandidates);
+
+    /**
+     * Asynchronous version of {@link #getWordBreakCandidates(String, int)}. By default the
+     * separations are computed by the calling thread.
+     * @param text          text without whitespaces
+     * @param maxCandidates number of max. separations returned
+     * @return              future of the separations of the text, best first
+     */
+    default CompletableFuture<List<String>> getWordBreakCandidatesAsync(String text, int maxCandidates){
+        return CompletableFuture.completedFuture(getWordBreakCandidates(text, maxCandidates));
+    }
+
+    /**
+     * Flushes data gathered by the word breaker, e.g. logs, keeping it usable.
+     */
+    default void flush(){
+    }
+
+    /**
+     * Releases the resources of the word breaker, e.g. flushes logs.
+     */
+    default void close(){
+    }
+}
@@ -0,0 +1,151 @@
+package de.webis.parser;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parser for confidences files written by an evaluation run. Each line holds a query
+ * followed by pairs of spelling and confidence, optionally preceded by the id of the
+ * corpus entry. The file is read through memory mapped regions unless it is compressed.
+ */
+public class ConfidencesParser {
+    private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    private final String confidencesPath;
+    private final Charset charset;
+
+    /**
+     * Handler receiving the parsed lines of a confidences file.
+     */
+    public interface Handler {
+        /**
+         * Handle a single line.
+         * @param id           id of the corpus entry or null if the line doesn't contain one
+         * @param query        spelled query
+         * @param confidences  spellings and their confidences in file order
+         */
+        void accept(String id, String query, Map<String, Double> confidences);
+    }
+
+    /**
+     * Class constructor specifying the location of a confidences file written
+     * in the default charset.
+     * @param confidencesPath location of confidences file
+     */
+    public ConfidencesParser(String confidencesPath){
+        this(confidencesPath, Charset.defaultCharset());
+    }
+
+    /**
+     * Class constructor specifying the location of a confidences file and its charset.
+     * @param confidencesPath location of confidences file
+     * @param charset         charset of confidences file
+     */
+    public ConfidencesParser(String confidencesPath, Charset charset){
+        this.confidencesPath = confidencesPath;
+        this.charset = charset;
+    }
+
+    /**
+     * Parse all lines of the confidences file. Gzip compressed files (<code>*.gz</code>)
+     * are streamed instead of memory mapped.
+     * @param handler handler receiving each line
+     * @throws IOException if the file can't be read
+     */
+    public void parse(Handler handler) throws IOException {
+        if(confidencesPath.endsWith(".gz")){
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(confidencesPath), 64 * 1024), charset))) {
+                String line;
+
+                while((line = reader.readLine()) != null){
+                    if(!line.isEmpty()){
+                        parseLine(line, handler);
+                    }
+                }
+            }
+
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(confidencesPath, "r");
+             FileChannel channel = file.getChannel()) {
+
+            long size = channel.size();
+            long regionStart = 0;
+            int regionSize = REGION_SIZE;
+            byte[] line = new byte[256];
+
+            while(regionStart < size){
+                long length = Math.min(regionSize, size - regionStart);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+                int lineStart = 0;
+
+                for(int i = 0; i < length; i++){
+                    if(region.get(i) == '\n'){
+                        line = parseLine(region, lineStart, i, line, handler);
+                        lineStart = i + 1;
+                    }
+                }
+
+                if(regionStart + length == size){
+                    if(lineStart < length){
+                        parseLine(region, lineStart, (int) length, line, handler);
+                    }
+
+                    break;
+                }
+
+                if(lineStart == 0){
+                    // a single line exceeds the region, map a larger one
+                    regionSize = (int) Math.min(Integer.MAX_VALUE, 2L * regionSize);
+                }
+
+                regionStart += lineStart;
+            }
+        }
+    }
+
+    private byte[] parseLine(MappedByteBuffer region, int start, int end, byte[] buffer, Handler handler){
+        if(end > start && region.get(end - 1) == '\r'){
+            end--;
+        }
+
+        if(end - start > buffer.length){
+            buffer = new byte[Math.max(end - start, 2 * buffer.length)];
+        }
+
+        for(int i = start; i < end; i++){
+            buffer[i - start] = region.get(i);
+        }
+
+        if(end > start){
+            parseLine(new String(buffer, 0, end - start, charset), handler);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Parse a single line of a confidences file.
+     * @param line    line of confidences file
+     * @param handler handler receiving the parsed line
+     */
+    public static void parseLine(String line, Handler handler){
+        String[] split = line.split(";");
+        // an odd number of fields is query + pairs, an even one is id + query + pairs
+        int offset = split.length % 2 == 0 ? 1 : 0;
+        Map<String, Double> confidences = new LinkedHashMap<>();
+
+        for(int i = offset + 1; i + 1 < split.length; i += 2){
+            confidences.put(split[i], Double.parseDouble(split[i + 1]));
+        }
+
+        handler.accept(offset == 1 ? split[0] : null, split[offset], confidences);
+    }
+}
@@ -7,6 +7,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Parser class for a given corpus.
@@ -47,17 +49,44 @@ public abstract class CorpusParser {
      * @return  list of corrections from the corpus
      */
     public List<CorpusCorrection> parse() {
-        try {
-            BufferedReader readerCorpus = new BufferedReader(new FileReader(corpusPath));
-            BufferedReader readerError = new BufferedReader(new FileReader(errorAnnotationPath));
+        List<CorpusCorrection> corrections = new ArrayList<>();
+
+        parse((correction, annotations) -> corrections.add(correction));
+
+        return corrections;
+    }
+
+    /**
+     * Parse represented corpus in a single streaming pass over the corpus and its error
+     * annotation file. Each correction is handed to the consumer together with the fields
+     * of its annotation lines, the files are read once and nothing is retained.
+     * @param consumer  consumer of each correction and the split lines of its annotated
+     *                  spelling variants
+     */
+    public void parse(BiConsumer<CorpusCorrection, List<String[]>> consumer) {
+        parse(consumer, annotation -> {});
+    }
+
+    /**
+     * Parse represented corpus in a single streaming pass like
+     * {@link #parse(BiConsumer)}, additionally handing every line of the error annotation
+     * file to a second consumer once, including lines not matching any correction.
+     * @param consumer              consumer of each correction and the split lines of its
+     *                              annotated spelling variants
+     * @param annotationConsumer    consumer of the split lines of the whole error annotation
+     *                              file, in the order of the file
+     */
+    public void parse(BiConsumer<CorpusCorrection, List<String[]>> consumer, Consumer<String[]> annotationConsumer) {
+        try (BufferedReader readerCorpus = new BufferedReader(new FileReader(corpusPath));
+             BufferedReader readerError = new BufferedReader(new FileReader(errorAnnotationPath))) {
 
-            List<CorpusCorrection> corrections = new ArrayList<>();
             String lineCorpus, lineError = readerError.readLine();
 
             boolean after = false;
 
             while ((lineCorpus = readerCorpus.readLine()) != null) {
                 CorpusCorrection correction = getCorrection(lineCorpus);
+                List<String[]> annotations = new ArrayList<>();
 
                 while (true) {
                     if (!after) {
@@ -68,24 +97,33 @@ public abstract class CorpusParser {
                         break;
                     }
 
-                    if (!lineError.split(";")[1].equals(correction.getQuery())) {
+                    String[] annotation = lineError.split(";");
+
+                    if (!after) {
+                        annotationConsumer.accept(annotation);
+                    }
+
+                    if (!annotation[1].equals(correction.getQuery())) {
                         after = true;
                         break;
                     }
 
-                    correction.addErrorAnnotations(ErrorAnnotationParser.getExistingErrorTypes(lineError));
+                    correction.addErrorAnnotations(ErrorAnnotationParser.getExistingErrorTypes(
+                            ErrorAnnotationParser.getErrorTypeCounts(annotation)));
+                    annotations.add(annotation);
                     after = false;
                 }
 
-                corrections.add(correction);
+                consumer.accept(correction, annotations);
             }
 
-            return corrections;
+            // annotation lines left over after the last correction
+            while ((lineError = readerError.readLine()) != null) {
+                annotationConsumer.accept(lineError.split(";"));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
-
-        return new ArrayList<>();
     }
 
     /**
@@ -19,40 +19,64 @@ public class ErrorAnnotationParser {
     private static final int substitutionError = 7;
     private static final int transpositionError = 8;
 
+    /**
+     * Names of the annotated error types in the order of their columns
+     */
+    public static final String[] ERROR_TYPES = {
+            "space", "character", "insertion", "deletion", "substitution", "transposition"
+    };
+
     /**
      * Get the contained error types for a single line from the error annotation file
      * @param annotationLine    line from error annotation file
      * @return                  set of contained error types
      */
     public static Set<String> getExistingErrorTypes(String annotationLine){
-        Set<String> errors = new HashSet<>();
-        String[] split = annotationLine.split(";");
-
-        if(Integer.valueOf(split[spaceError]) > 0){
-            errors.add("space");
-        }
-
-        if(Integer.valueOf(split[characterError]) > 0){
-            errors.add("character");
-        }
+        return getExistingErrorTypes(getErrorTypeCounts(annotationLine));
+    }
 
-        if(Integer.valueOf(split[insertionError]) > 0){
-            errors.add("insertion");
-        }
+    /**
+     * Get the contained error types for the error counts of a single spelling variant
+     * @param errorTypeCounts   error counts as returned by {@link #getErrorTypeCounts(String)}
+     * @return                  set of contained error types
+     */
+    public static Set<String> getExistingErrorTypes(int[] errorTypeCounts){
+        Set<String> errors = new HashSet<>();
 
-        if(Integer.valueOf(split[deletionError]) > 0){
-            errors.add("deletion");
+        for(int i = 0; i < ERROR_TYPES.length; i++){
+            if(errorTypeCounts[i] > 0){
+                errors.add(ERROR_TYPES[i]);
+            }
         }
 
-        if(Integer.valueOf(split[substitutionError]) > 0){
-            errors.add("substitution");
-        }
+        return errors;
+    }
 
-        if(Integer.valueOf(split[transpositionError]) > 0){
-            errors.add("transposition");
-        }
+    /**
+     * Get the number of errors of each type for a single line from the error annotation
+     * file, parsing the line only once
+     * @param annotationLine    line from error annotation file
+     * @return                  number of errors in the order of {@link #ERROR_TYPES}
+     */
+    public static int[] getErrorTypeCounts(String annotationLine){
+        return getErrorTypeCounts(annotationLine.split(";"));
+    }
 
-        return errors;
+    /**
+     * Get the number of errors of each type for the fields of a single line from the
+     * error annotation file
+     * @param split fields of a line from error annotation file
+     * @return      number of errors in the order of {@link #ERROR_TYPES}
+     */
+    public static int[] getErrorTypeCounts(String[] split){
+        return new int[]{
+                Integer.parseInt(split[spaceError]),
+                Integer.parseInt(split[characterError]),
+                Integer.parseInt(split[insertionError]),
+                Integer.parseInt(split[deletionError]),
+                Integer.parseInt(split[substitutionError]),
+                Integer.parseInt(split[transpositionError])
+        };
     }
 
     /**
@@ -0,0 +1,271 @@
+package de.webis.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.webis.datastructures.RankedCandidates;
+import de.webis.speller.LueckSpeller;
+import de.webis.speller.Speller;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded HTTP server exposing a spelling algorithm with the protocol of the Microsoft
+ * Speller Challenge: a GET or POST request with the parameters
+ * <code>runID</code> and <code>query</code> to the root path is answered with a
+ * <code>text/plain</code> body listing one correction and its confidence per line,
+ * separated by a tab.
+ * <p>
+ * Queries are spelled by a bounded pool of worker threads; requests exceeding its queue
+ * are answered with status 503. Concurrent requests for the same query share a single
+ * call of the algorithm. Connections are kept alive between requests. Counters of the
+ * service are served at <code>/stats</code>.
+ */
+public class SpellerService {
+    private final Speller speller;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+
+    private final ConcurrentHashMap<String, CompletableFuture<RankedCandidates>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong numRequests = new AtomicLong();
+    private final AtomicLong numCoalesced = new AtomicLong();
+    private final AtomicLong numRejected = new AtomicLong();
+    private final AtomicLong numFailed = new AtomicLong();
+
+    /**
+     * Class constructor. The service doesn't accept requests before {@link #start()}.
+     * @param speller       algorithm to serve, must be safe for concurrent use if more than
+     *                      one worker thread is used
+     * @param port          port to listen on, 0 for any free port
+     * @param numThreads    number of worker threads spelling queries
+     * @param queueCapacity max. number of queries waiting for a worker thread
+     * @throws IOException  if the server socket can't be bound
+     */
+    public SpellerService(Speller speller, int port, int numThreads, int queueCapacity) throws IOException {
+        this.speller = speller;
+        this.workers = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, "speller-worker"));
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handleSpell);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    public void start(){
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and shut down the worker threads. The algorithm isn't closed.
+     * @param delaySeconds max. time to wait for running exchanges to finish
+     */
+    public void stop(int delaySeconds){
+        server.stop(delaySeconds);
+        workers.shutdown();
+
+        try {
+            workers.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the port the service listens on.
+     * @return port of the service
+     */
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handles a spelling request. The exchange is completed by the thread finishing the
+     * spelling, so the dispatcher thread is never blocked by the algorithm.
+     */
+    private void handleSpell(HttpExchange exchange) throws IOException {
+        numRequests.incrementAndGet();
+
+        // the context of the root path receives all paths without a context of their own
+        if(!exchange.getRequestURI().getPath().equals("/")){
+            respond(exchange, 404, "Not found\n");
+            return;
+        }
+
+        if(!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("POST")){
+            respond(exchange, 405, "Method not allowed\n");
+            return;
+        }
+
+        String query;
+
+        try {
+            query = getParameters(exchange).get("query");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Malformed parameters\n");
+            return;
+        }
+
+        if(query == null){
+            respond(exchange, 400, "Missing parameter: query\n");
+            return;
+        }
+
+        spell(query).whenComplete((spelling, throwable) -> {
+            try {
+                if(throwable == null){
+                    respond(exchange, 200, format(spelling));
+                }
+                else if(throwable instanceof RejectedExecutionException){
+                    respond(exchange, 503, "Service overloaded\n");
+                }
+                else{
+                    numFailed.incrementAndGet();
+                    throwable.printStackTrace();
+                    respond(exchange, 500, "Spelling failed\n");
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Spell a query, or join the spelling of the same query already in progress.
+     */
+    private CompletableFuture<RankedCandidates> spell(String query){
+        CompletableFuture<RankedCandidates> created = new CompletableFuture<>();
+        CompletableFuture<RankedCandidates> spelling = inFlight.putIfAbsent(query, created);
+
+        if(spelling != null){
+            numCoalesced.incrementAndGet();
+            return spelling;
+        }
+
+        try {
+            workers.execute(() -> {
+                try {
+                    created.complete(speller.spellRanked(query));
+                } catch (Throwable throwable) {
+                    created.completeExceptionally(throwable);
+                } finally {
+                    inFlight.remove(query, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            numRejected.incrementAndGet();
+            inFlight.remove(query, created);
+            created.completeExceptionally(e);
+        }
+
+        return created;
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "requests\t"+numRequests.get()+"\n"
+                +"coalesced\t"+numCoalesced.get()+"\n"
+                +"rejected\t"+numRejected.get()+"\n"
+                +"failed\t"+numFailed.get()+"\n"
+                +"active\t"+workers.getActiveCount()+"\n"
+                +"queued\t"+workers.getQueue().size()+"\n");
+    }
+
+    private static String format(RankedCandidates spelling){
+        StringBuilder builder = new StringBuilder();
+
+        for(int i = 0; i < spelling.size(); i++){
+            builder.append(spelling.getCandidate(i)).append("\t").append(spelling.getConfidence(i)).append("\n");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Sends a response with a fixed length, so the connection can be kept alive.
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(bytes);
+        }
+    }
+
+    /**
+     * Parses the parameters of the query string and, for POST requests, of the form encoded body.
+     * @throws IllegalArgumentException if a parameter contains a malformed escape sequence
+     */
+    private static Map<String, String> getParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+
+        if(exchange.getRequestMethod().equals("POST")){
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            try (InputStream stream = exchange.getRequestBody()) {
+                for(int length; (length = stream.read(buffer)) != -1; ){
+                    body.write(buffer, 0, length);
+                }
+            }
+
+            parseParameters(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+        }
+
+        return parameters;
+    }
+
+    private static void parseParameters(String encoded, Map<String, String> parameters)
+            throws UnsupportedEncodingException {
+        if(encoded == null || encoded.isEmpty()){
+            return;
+        }
+
+        for(String pair: encoded.split("&")){
+            int separator = pair.indexOf('=');
+
+            if(separator > 0){
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+    }
+
+    /**
+     * Serve the spelling algorithm of Gord Lueck.
+     * @param args port (default 8080), number of worker threads (default: number of
+     *             processors) and queue capacity (default 1024)
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+
+        Speller speller = new LueckSpeller();
+
+        try {
+            SpellerService service = new SpellerService(speller, port, numThreads, queueCapacity);
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                service.stop(1);
+                speller.close();
+            }));
+
+            service.start();
+            System.out.println("Serving "+speller.getSpellTag()+" on port "+service.getPort()
+                    +" with "+numThreads+" threads...");
+        } catch (IOException e) {
+            e.printStackTrace();
+            speller.close();
+        }
+    }
+}
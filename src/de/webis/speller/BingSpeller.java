@@ -2,13 +2,14 @@ package de.webis.speller;
 
 import de.webis.api.MicrosoftAPIRequestor;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 public class BingSpeller extends Speller {
+    private static final int MAX_CORRECTIONS = 100;
+
     private MicrosoftAPIRequestor requestor;
 
     public BingSpeller(){
@@ -17,12 +18,25 @@ public class BingSpeller extends Speller {
 
     @Override
     public Map<String, Double> spell(String query) {
-        List<String> results = new ArrayList<>();
-        List<List<String>> candidates = requestor.spell(query);
+        return rate(requestor.spell(query));
+    }
+
+    /**
+     * Gets possible corrections for a given query. The request to the Bing Spell Check API
+     * is executed by the request threads of {@link MicrosoftAPIRequestor}.
+     * @param query string of a query to correct
+     * @return      future of a map of possible corrections and their confidences
+     */
+    @Override
+    public CompletableFuture<Map<String, Double>> spellAsync(String query) {
+        return requestor.spellAsync(query).thenApply(this::rate);
+    }
 
+    private Map<String, Double> rate(List<List<String>> candidates) {
+        List<String> results = new ArrayList<>();
         Map<String, Double> spellings = new HashMap<>();
 
-        aggregateCandidates(candidates, results, 0, "", candidates.size());
+        new CandidateEnumerator(candidates, candidates.size(), MAX_CORRECTIONS).forEachRemaining(results::add);
 
         for(String result: results){
             spellings.put(result, 1.0 / results.size());
@@ -33,6 +47,63 @@ public class BingSpeller extends Speller {
         return spellings;
     }
 
+    /**
+     * Gets possible corrections for several queries. The terms of the batch without logged
+     * spell candidates are collected first, then only queries containing a term not covered
+     * by another requested query are sent to the Bing Spell Check API, all at once by the
+     * request threads of {@link MicrosoftAPIRequestor}. The corrections of every query are
+     * built from the spell candidates log afterwards.
+     * @param queries   queries to correct
+     * @return          a map of possible corrections and their confidences for each
+     *                  query, in the order of the given queries
+     */
+    @Override
+    public List<Map<String, Double>> spellBatch(List<String> queries) {
+        Set<String> unlogged = requestor.getUnloggedSpellTerms(queries);
+        List<CompletableFuture<List<List<String>>>> requests = new ArrayList<>();
+
+        for(String query: new LinkedHashSet<>(queries)){
+            boolean covers = false;
+
+            for(String word: query.split("[ ]+")){
+                covers |= unlogged.remove(word);
+            }
+
+            if(covers){
+                requests.add(requestor.spellAsync(query));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+
+        Map<String, Map<String, Double>> spellings = new HashMap<>();
+        List<Map<String, Double>> results = new ArrayList<>(queries.size());
+
+        for(String query: queries){
+            Map<String, Double> spelling = spellings.get(query);
+
+            if(spelling == null){
+                spelling = spell(query);
+                spellings.put(query, spelling);
+            }
+            else{
+                spelling = new HashMap<>(spelling);
+            }
+
+            results.add(spelling);
+        }
+
+        return results;
+    }
+
     @Override
     public String getSpellTag() {
         return "bing";
@@ -40,7 +111,7 @@ public class BingSpeller extends Speller {
 
     @Override
     public void flush() {
-        close();
+        requestor.flush();
     }
 
     @Override
@@ -0,0 +1,274 @@
+package de.webis.speller;
+
+import de.webis.datastructures.BoundedCache;
+import de.webis.datastructures.BoundedSpelling;
+import de.webis.datastructures.RankedCandidates;
+import de.webis.parser.ConfidencesParser;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator caching the final results of any spelling algorithm in memory. Queries are
+ * normalized by trimming and collapsing whitespace before they are looked up, the wrapped
+ * algorithm gets the query as given. The cache is bounded and frequency-aware, see
+ * {@link BoundedCache}. Optionally the cached results are saved to a file on
+ * {@link #close()} and loaded again by the next instance using this file.
+ */
+public class CachingSpeller extends Speller {
+    private final Speller speller;
+    private final BoundedCache<String, RankedCandidates> cache;
+    private final String cacheFile;
+
+    /**
+     * Class constructor of a cache only kept in memory.
+     * @param speller  algorithm whose results get cached
+     * @param capacity max. number of cached queries
+     */
+    public CachingSpeller(Speller speller, int capacity){
+        this(speller, capacity, null);
+    }
+
+    /**
+     * Class constructor of a cache persisted across runs.
+     * @param speller   algorithm whose results get cached
+     * @param capacity  max. number of cached queries
+     * @param cacheFile file the cached results are loaded from and saved to, in the format of
+     *                  a confidences file, or null to keep them in memory only
+     */
+    public CachingSpeller(Speller speller, int capacity, String cacheFile){
+        this.speller = speller;
+        this.cache = new BoundedCache<>(capacity);
+        this.cacheFile = cacheFile;
+
+        if(cacheFile != null && new File(cacheFile).exists()){
+            load();
+        }
+    }
+
+    /**
+     * Function to identify the spelling algorithm for comparing purposes.
+     * @return string tag of the cached algorithm
+     */
+    @Override
+    public String getSpellTag() {
+        return speller.getSpellTag();
+    }
+
+    @Override
+    public Map<String, Double> spell(String query) {
+        return spellRanked(query).asMap();
+    }
+
+    @Override
+    public RankedCandidates spellRanked(String query) {
+        String key = normalizeQuery(query);
+        RankedCandidates spelling = cache.get(key);
+
+        if(spelling == null){
+            spelling = speller.spellRanked(query);
+            cache.put(key, spelling);
+        }
+
+        return spelling;
+    }
+
+    /**
+     * Gets possible corrections for a given query within a deadline. Cached results are
+     * returned right away, partial results of the cached algorithm don't get cached.
+     * @param query     string of a query to correct
+     * @param timeout   time until the deadline
+     * @param unit      unit of the timeout
+     * @return          the best corrections found before the deadline
+     */
+    @Override
+    public BoundedSpelling spell(String query, long timeout, TimeUnit unit) {
+        String key = normalizeQuery(query);
+        RankedCandidates spelling = cache.get(key);
+
+        if(spelling != null){
+            return new BoundedSpelling(spelling, false);
+        }
+
+        BoundedSpelling boundedSpelling = speller.spell(query, timeout, unit);
+
+        if(!boundedSpelling.isPartial()){
+            cache.put(key, boundedSpelling.getSpelling());
+        }
+
+        return boundedSpelling;
+    }
+
+    @Override
+    public List<Map<String, Double>> spellBatch(List<String> queries) {
+        List<Map<String, Double>> spellings = new ArrayList<>(queries.size());
+
+        for(RankedCandidates spelling: spellRankedBatch(queries)){
+            spellings.add(spelling.asMap());
+        }
+
+        return spellings;
+    }
+
+    /**
+     * Gets possible corrections for several queries. Only the queries not cached are
+     * handed to the cached algorithm, as a single batch.
+     * @param queries   queries to correct
+     * @return          possible corrections and their confidences for each query, ranked
+     *                  by confidence, in the order of the given queries
+     */
+    @Override
+    public List<RankedCandidates> spellRankedBatch(List<String> queries) {
+        List<RankedCandidates> spellings = new ArrayList<>(queries.size());
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+
+        for(int i = 0; i < queries.size(); i++){
+            String key = normalizeQuery(queries.get(i));
+            RankedCandidates spelling = cache.get(key);
+
+            if(spelling == null){
+                missing.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+
+            spellings.add(spelling);
+        }
+
+        if(!missing.isEmpty()){
+            List<String> missingQueries = new ArrayList<>(missing.size());
+
+            for(List<Integer> indices: missing.values()){
+                missingQueries.add(queries.get(indices.get(0)));
+            }
+
+            Iterator<RankedCandidates> results = speller.spellRankedBatch(missingQueries).iterator();
+
+            for(Map.Entry<String, List<Integer>> entry: missing.entrySet()){
+                RankedCandidates spelling = results.next();
+                cache.put(entry.getKey(), spelling);
+
+                for(int index: entry.getValue()){
+                    spellings.set(index, spelling);
+                }
+            }
+        }
+
+        return spellings;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Double>> spellAsync(String query) {
+        String key = normalizeQuery(query);
+        RankedCandidates spelling = cache.get(key);
+
+        if(spelling != null){
+            return CompletableFuture.completedFuture(spelling.asMap());
+        }
+
+        return speller.spellAsync(query).thenApply(confidences -> {
+            cache.put(key, RankedCandidates.fromMap(confidences));
+            return confidences;
+        });
+    }
+
+    /**
+     * Get the cache of this speller, e.g. to read its hit and miss counters.
+     * @return cache of the final results
+     */
+    public BoundedCache<String, RankedCandidates> getCache(){
+        return cache;
+    }
+
+    @Override
+    public void flush() {
+        speller.flush();
+    }
+
+    /**
+     * Saves the cached results if a cache file is set and closes the cached algorithm.
+     */
+    @Override
+    public void close() {
+        if(cacheFile != null){
+            save();
+        }
+
+        System.out.println("Cache ("+getSpellTag()+"): "+cache
+                +String.format(Locale.ROOT, ", hit rate: %.3f", cache.getHitRate()));
+
+        speller.close();
+    }
+
+    private static String normalizeQuery(String query){
+        return query.trim().replaceAll("\\s+", " ");
+    }
+
+    private void load(){
+        try {
+            new ConfidencesParser(cacheFile).parse((id, query, confidences) ->
+                    cache.put(query, RankedCandidates.fromMap(confidences)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the cache from the least to the most recently used entry, so loading it
+     * restores the recency order. The file gets replaced atomically.
+     */
+    private void save(){
+        File file = new File(cacheFile);
+        File tmpFile = new File(cacheFile+".tmp");
+
+        if(file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs()){
+            System.err.println("Can't create parent directories: "+file.getPath());
+            return;
+        }
+
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(tmpFile)))) {
+            cache.forEach((query, spelling) -> {
+                writer.print(query);
+
+                for(int i = 0; i < spelling.size(); i++){
+                    writer.print(";"+spelling.getCandidate(i)+";"+spelling.getConfidence(i));
+                }
+
+                writer.println();
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void main(String[] args) {
+        CachingSpeller speller = new CachingSpeller(new LueckSpeller(), 100000,
+                "./data/log/cached-spellings/lueck.csv");
+
+        final String query = "examlpe of spealling";
+
+        for(int i = 0; i < 3; i++){
+            long start = System.nanoTime();
+            Map<String, Double> querySpellings = speller.spell(query);
+
+            System.out.println("Possible spellings of \""+query+"\""
+                    +String.format(Locale.ROOT, " (%.3f ms):", (System.nanoTime() - start) / 1.0e6));
+            System.out.println("-----------------------------------");
+            for(Map.Entry<String, Double> entry: querySpellings.entrySet()){
+                System.out.println(entry.getKey() + " | "+(entry.getValue() * 100.00) + "%");
+            }
+        }
+
+        speller.close();
+    }
+}
@@ -0,0 +1,194 @@
+package de.webis.speller;
+
+import java.util.*;
+
+/**
+ * Lazily enumerates combinations of per-term corrections of a query in order of their
+ * summed cost, cheapest first. Instead of materializing the full Cartesian product,
+ * only the frontier of the next cheapest combinations is kept in a priority queue and
+ * at most a fixed number of combinations is yielded.
+ */
+public class CandidateEnumerator implements Iterator<String> {
+    private final String[][] candidates;
+    private final double[][] costs;
+    private final int[][] order;
+    private final int minLength;
+    private final int maxResults;
+    private final int maxExpansions;
+
+    private final PriorityQueue<Combination> frontier;
+    private final StringBuilder builder = new StringBuilder();
+
+    private String next;
+    private int numResults;
+    private int numExpansions;
+
+    /**
+     * Class constructor ranking the corrections of each term by their list position.
+     * @param candidates possible corrections for each word of a query such that
+     *                   its index matches the position of this word in a query
+     * @param minLength  min. number of words of the resulting combinations
+     * @param maxResults max. number of combinations to yield
+     */
+    public CandidateEnumerator(List<List<String>> candidates, int minLength, int maxResults){
+        this(candidates, getRankCosts(candidates), minLength, maxResults);
+    }
+
+    /**
+     * Class constructor specifying the cost of each correction.
+     * @param candidates possible corrections for each word of a query such that
+     *                   its index matches the position of this word in a query
+     * @param costs      cost of each correction, same shape as <code>candidates</code>
+     * @param minLength  min. number of words of the resulting combinations
+     * @param maxResults max. number of combinations to yield
+     */
+    public CandidateEnumerator(List<List<String>> candidates, double[][] costs, int minLength, int maxResults){
+        this.candidates = new String[candidates.size()][];
+        this.costs = costs;
+        this.order = new int[candidates.size()][];
+        this.minLength = minLength;
+        this.maxResults = maxResults;
+        // combinations filtered for their length don't count, bound the work spent on them
+        this.maxExpansions = 16 * maxResults;
+        this.frontier = new PriorityQueue<>();
+
+        boolean empty = candidates.isEmpty();
+
+        for(int i = 0; i < candidates.size(); i++){
+            this.candidates[i] = candidates.get(i).toArray(new String[0]);
+            this.order[i] = sortByCost(costs[i]);
+            empty |= this.candidates[i].length == 0;
+        }
+
+        if(!empty){
+            int[] indices = new int[candidates.size()];
+            frontier.add(new Combination(indices, getCost(indices), 0));
+        }
+
+        advance();
+    }
+
+    @Override
+    public boolean hasNext(){
+        return next != null;
+    }
+
+    @Override
+    public String next(){
+        if(next == null){
+            throw new NoSuchElementException();
+        }
+
+        String result = next;
+        advance();
+
+        return result;
+    }
+
+    private void advance(){
+        next = null;
+
+        while(numResults < maxResults && numExpansions < maxExpansions && !frontier.isEmpty()){
+            Combination combination = frontier.poll();
+            numExpansions++;
+
+            // incrementing only positions from the last incremented one on reaches every combination once
+            for(int i = combination.pivot; i < candidates.length; i++){
+                if(combination.indices[i] + 1 < candidates[i].length){
+                    int[] indices = combination.indices.clone();
+                    indices[i]++;
+                    frontier.add(new Combination(indices, getCost(indices), i));
+                }
+            }
+
+            String result = build(combination.indices);
+
+            if(countWords(result) >= minLength){
+                numResults++;
+                next = result;
+                return;
+            }
+        }
+    }
+
+    private String build(int[] indices){
+        builder.setLength(0);
+
+        for(int i = 0; i < indices.length; i++){
+            builder.append(' ').append(candidates[i][order[i][indices[i]]]);
+        }
+
+        return builder.toString().trim().toLowerCase();
+    }
+
+    private double getCost(int[] indices){
+        double cost = 0.0;
+
+        for(int i = 0; i < indices.length; i++){
+            cost += costs[i][order[i][indices[i]]];
+        }
+
+        return cost;
+    }
+
+    private static int countWords(String combination){
+        int numWords = 1;
+
+        for(int i = 0; i < combination.length(); i++){
+            if(combination.charAt(i) == ' '){
+                numWords++;
+            }
+        }
+
+        return numWords;
+    }
+
+    private static int[] sortByCost(double[] costs){
+        Integer[] order = new Integer[costs.length];
+
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+
+        Arrays.sort(order, Comparator.comparingDouble(index -> costs[index]));
+
+        int[] result = new int[order.length];
+
+        for(int i = 0; i < order.length; i++){
+            result[i] = order[i];
+        }
+
+        return result;
+    }
+
+    private static double[][] getRankCosts(List<List<String>> candidates){
+        double[][] costs = new double[candidates.size()][];
+
+        for(int i = 0; i < costs.length; i++){
+            costs[i] = new double[candidates.get(i).size()];
+
+            for(int j = 0; j < costs[i].length; j++){
+                costs[i][j] = j;
+            }
+        }
+
+        return costs;
+    }
+
+    private static class Combination implements Comparable<Combination> {
+        private final int[] indices;
+        private final double cost;
+        private final int pivot;
+
+        private Combination(int[] indices, double cost, int pivot){
+            this.indices = indices;
+            this.cost = cost;
+            this.pivot = pivot;
+        }
+
+        @Override
+        public int compareTo(Combination other){
+            return Double.compare(cost, other.cost);
+        }
+    }
+}
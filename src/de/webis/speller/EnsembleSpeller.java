@@ -0,0 +1,349 @@
+package de.webis.speller;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Spelling algorithm combining the results of several member algorithms. All members
+ * spell a query concurrently, each within its own timeout. Members not finished in time
+ * or failing are dropped for this query, so a single slow member doesn't delay the
+ * ensemble. The confidences of the remaining members are normalized, weighted and
+ * summed up, before they get normalized again.
+ * <p>
+ * Each member spells at most a max. number of queries at once, a member already spelling
+ * that many queries is dropped right away. A timed out spelling can't always be stopped,
+ * e.g. a running http request, so this keeps a slow member from piling up threads.
+ * Each member is called in a pool of threads of its own, so work done before a member
+ * returns delays neither the other members nor the caller. Members overriding
+ * {@link Speller#spellAsync(String)} are called by it and hold their thread only until
+ * it returns.
+ */
+public class EnsembleSpeller extends Speller {
+    private static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+    private final List<Member> members = new ArrayList<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private String SPELLER_TAG = "ensemble";
+
+    /**
+     * Class constructor of an ensemble without members, add them with
+     * {@link #addSpeller(Speller, double, long)}.
+     */
+    public EnsembleSpeller(){
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> newDaemonThread(runnable, "ensemble-timeout"));
+    }
+
+    /**
+     * Add a member algorithm spelling at most {@value #DEFAULT_MAX_CONCURRENCY} queries at once.
+     * @param speller       member algorithm, must be safe for concurrent use if the ensemble is
+     * @param weight        weight of the confidences of the member
+     * @param timeoutMillis time in milliseconds after which the member gets dropped for a query
+     */
+    public void addSpeller(Speller speller, double weight, long timeoutMillis){
+        addSpeller(speller, weight, timeoutMillis, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Add a member algorithm.
+     * @param speller        member algorithm, must be safe for concurrent use if the ensemble is
+     * @param weight         weight of the confidences of the member
+     * @param timeoutMillis  time in milliseconds after which the member gets dropped for a query
+     * @param maxConcurrency max. number of queries the member spells at once, including timed
+     *                       out ones still running
+     */
+    public void addSpeller(Speller speller, double weight, long timeoutMillis, int maxConcurrency){
+        if(maxConcurrency < 1){
+            throw new IllegalArgumentException("Max. concurrency must be positive: "+maxConcurrency);
+        }
+
+        members.add(new Member(speller, weight, timeoutMillis, maxConcurrency));
+    }
+
+    /**
+     * Function to identify the spelling algorithm for comparing purposes.
+     * @return string tag for identification
+     */
+    @Override
+    public String getSpellTag() {
+        return SPELLER_TAG;
+    }
+
+    /**
+     * Gets possible corrections for a given query. Blocks at most until the longest
+     * timeout of the members has passed.
+     * @param query string of a query to correct
+     * @return      a map of possible corrections for the query with their
+     *              combined normalized confidences
+     */
+    @Override
+    public Map<String, Double> spell(String query) {
+        return spellAsync(query).join();
+    }
+
+    /**
+     * Gets possible corrections for a given query without blocking the calling thread.
+     * The future completes as soon as all members finished or got dropped.
+     * @param query string of a query to correct
+     * @return      future of a map of possible corrections for the query with their
+     *              combined normalized confidences
+     */
+    @Override
+    public CompletableFuture<Map<String, Double>> spellAsync(String query) {
+        List<CompletableFuture<Map<String, Double>>> spellings = new ArrayList<>(members.size());
+
+        for(Member member: members){
+            spellings.add(member.spell(query));
+        }
+
+        return CompletableFuture.allOf(spellings.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, Double> confidences = new HashMap<>();
+
+            for(int i = 0; i < members.size(); i++){
+                Map<String, Double> spelling = spellings.get(i).join();
+
+                if(spelling == null){
+                    members.get(i).numDropped.incrementAndGet();
+                    continue;
+                }
+
+                double weight = members.get(i).weight;
+
+                for(Map.Entry<String, Double> entry: normalize(new HashMap<>(spelling)).entrySet()){
+                    confidences.merge(entry.getKey(), weight * entry.getValue(), Double::sum);
+                }
+            }
+
+            // without any member in time, the query is returned unchanged
+            if(confidences.isEmpty()){
+                confidences.put(query, 1.0);
+            }
+
+            return normalize(confidences);
+        });
+    }
+
+    /**
+     * Get the number of queries handed to a member algorithm.
+     * @param speller member algorithm
+     * @return        number of queries
+     */
+    public long getNumSpelled(Speller speller){
+        return getMember(speller).numSpelled.get();
+    }
+
+    /**
+     * Get the number of queries a member algorithm got dropped for, because it didn't
+     * finish in time, failed or was saturated.
+     * @param speller member algorithm
+     * @return        number of queries the member got dropped for
+     */
+    public long getNumDropped(Speller speller){
+        return getMember(speller).numDropped.get();
+    }
+
+    /**
+     * Get the number of queries a member algorithm got dropped for right away, because it
+     * was already spelling its max. number of queries.
+     * @param speller member algorithm
+     * @return        number of queries the member was saturated for
+     */
+    public long getNumSaturated(Speller speller){
+        return getMember(speller).numSaturated.get();
+    }
+
+    private Member getMember(Speller speller){
+        for(Member member: members){
+            if(member.speller == speller){
+                return member;
+            }
+        }
+
+        throw new IllegalArgumentException("Not a member: "+speller.getSpellTag());
+    }
+
+    @Override
+    public void flush() {
+        for(Member member: members){
+            member.speller.flush();
+        }
+    }
+
+    /**
+     * Closes all member algorithms and the threads of the ensemble.
+     */
+    @Override
+    public void close() {
+        for(Member member: members){
+            member.speller.close();
+            member.executor.shutdownNow();
+        }
+
+        scheduler.shutdownNow();
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String name){
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+    private class Member {
+        private final Speller speller;
+        private final double weight;
+        private final long timeoutMillis;
+        private final Semaphore permits;
+        private final boolean async;
+        private final ExecutorService executor;
+
+        private final AtomicLong numSpelled = new AtomicLong();
+        private final AtomicLong numDropped = new AtomicLong();
+        private final AtomicLong numSaturated = new AtomicLong();
+
+        private Member(Speller speller, double weight, long timeoutMillis, int maxConcurrency){
+            this.speller = speller;
+            this.weight = weight;
+            this.timeoutMillis = timeoutMillis;
+            this.permits = new Semaphore(maxConcurrency);
+            this.async = hasAsyncPath(speller);
+            this.executor = Executors.newFixedThreadPool(maxConcurrency,
+                    runnable -> newDaemonThread(runnable, "ensemble-"+speller.getSpellTag()));
+        }
+
+        /**
+         * Spell the query asynchronously. The returned future completes with null if the
+         * member is saturated, fails or doesn't finish in time, a late member still being
+         * called in the executor gets interrupted. The permit of a query is returned once the
+         * member is done with it, not on timeout.
+         */
+        private CompletableFuture<Map<String, Double>> spell(String query){
+            numSpelled.incrementAndGet();
+
+            if(!permits.tryAcquire()){
+                numSaturated.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }
+
+            CompletableFuture<Map<String, Double>> spelling = new CompletableFuture<>();
+            AtomicBoolean started = new AtomicBoolean();
+            AtomicReference<Future<?>> task = new AtomicReference<>();
+
+            // the timeout runs from handing over the query, including the wait for a thread
+            ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+                if(spelling.complete(null)){
+                    if(started.compareAndSet(false, true)){
+                        // the task won't call the member anymore, so it won't return the permit
+                        permits.release();
+                    }
+                    else if(task.get() != null){
+                        task.get().cancel(true);
+                    }
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+            spelling.whenComplete((result, throwable) -> timeout.cancel(false));
+
+            try {
+                task.set(executor.submit(() -> {
+                    if(started.compareAndSet(false, true)){
+                        if(async){
+                            spellAsync(query, spelling);
+                        }
+                        else{
+                            spellSync(query, spelling);
+                        }
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                if(spelling.complete(null) && started.compareAndSet(false, true)){
+                    permits.release();
+                }
+            }
+
+            return spelling;
+        }
+
+        private void spellSync(String query, CompletableFuture<Map<String, Double>> spelling){
+            try {
+                spelling.complete(speller.spell(query));
+            } catch (RuntimeException e) {
+                if(spelling.complete(null)){
+                    e.printStackTrace();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        private void spellAsync(String query, CompletableFuture<Map<String, Double>> spelling){
+            CompletableFuture<Map<String, Double>> memberSpelling;
+
+            try {
+                memberSpelling = speller.spellAsync(query);
+            } catch (RuntimeException e) {
+                permits.release();
+
+                if(spelling.complete(null)){
+                    e.printStackTrace();
+                }
+
+                return;
+            }
+
+            memberSpelling.whenComplete((result, throwable) -> {
+                permits.release();
+
+                if(throwable != null){
+                    if(spelling.complete(null)){
+                        throwable.printStackTrace();
+                    }
+                }
+                else{
+                    spelling.complete(result);
+                }
+            });
+        }
+    }
+
+    /**
+     * Whether a speller overrides {@link Speller#spellAsync(String)}, e.g. to wait on remote
+     * lookups without blocking a thread.
+     */
+    private static boolean hasAsyncPath(Speller speller){
+        try {
+            return speller.getClass().getMethod("spellAsync", String.class).getDeclaringClass() != Speller.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        EnsembleSpeller speller = new EnsembleSpeller();
+        List<Speller> members = Arrays.asList(new LueckSpeller(), new BingSpeller(), new GoogleSpeller());
+        speller.addSpeller(members.get(0), 1.0, 1000);
+        speller.addSpeller(members.get(1), 1.0, 500);
+        speller.addSpeller(members.get(2), 0.5, 500);
+
+        final String query = "examlpe of spealling";
+        Map<String, Double> querySpellings = speller.spell(query);
+
+        System.out.println("Possible spellings of \""+query+"\":");
+        System.out.println("-----------------------------------");
+        for(Map.Entry<String, Double> entry: querySpellings.entrySet()){
+            System.out.println(entry.getKey() + " | "+(entry.getValue() * 100.00) + "%");
+        }
+
+        System.out.println();
+        for(Speller member: members){
+            System.out.println("Dropped "+member.getSpellTag()+": "+speller.getNumDropped(member)
+                    +" of "+speller.getNumSpelled(member)+" queries");
+        }
+
+        speller.close();
+    }
+}
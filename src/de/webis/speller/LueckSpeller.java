@@ -1,49 +1,109 @@
 package de.webis.speller;
 
 import de.webis.api.MicrosoftAPIRequestor;
-import de.webis.utils.ValueComparator;
-import dk.dren.hunspell.Hunspell;
-import org.apache.commons.lang3.StringUtils;
-
-import java.io.FileNotFoundException;
-import java.io.UnsupportedEncodingException;
+import de.webis.datastructures.BoundedSpelling;
+import de.webis.datastructures.RankedCandidates;
+import de.webis.dictionary.CachingDictionary;
+import de.webis.dictionary.HunspellDictionary;
+import de.webis.dictionary.HunspellDictionaryPool;
+import de.webis.dictionary.SpellingDictionary;
+import de.webis.dictionary.TrieDictionary;
+import de.webis.lm.ArpaLanguageModel;
+import de.webis.lm.LanguageModel;
+import de.webis.lm.LocalWordSegmenter;
+import de.webis.lm.WebLanguageModel;
+import de.webis.lm.WebWordBreaker;
+import de.webis.lm.WordBreaker;
+import de.webis.utils.EditDistance;
+
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 /**
  * Implementation of the spelling algorithm for queries presented by
- * Gord Lueck on the Microsoft Speller Challenge in 2011.
+ * Gord Lueck on the Microsoft Speller Challenge in 2011. A single instance may be shared
+ * by several threads, since all dictionaries, language models and word breakers of the
+ * framework are safe for concurrent use.
  */
 public class LueckSpeller extends Speller {
-    private Hunspell.Dictionary dictionary;
-    private MicrosoftAPIRequestor requestor;
+    private SpellingDictionary dictionary;
+    private LanguageModel languageModel;
+    private WordBreaker wordBreaker;
     private final Integer numberSuggestions = 2;
     private final Integer errorRate = 36;
+    private final Integer maxCorrections = 100;
+
+    private static final int DICTIONARY_CACHE_CAPACITY = 100000;
 
     private String SPELLER_TAG = "lueck";
 
     /**
      * Class constructor of <code>LueckSpeller</code>. The dictionary will be initialized
-     * with the american english version of hunspell.
+     * with the american english version of hunspell, loaded by {@link TrieDictionary}
+     * and cached by a {@link CachingDictionary}.
      */
     public LueckSpeller(){
-        try {
-            dictionary = Hunspell.getInstance().getDictionary("/usr/share/hunspell/en_US");
-            requestor = new MicrosoftAPIRequestor();
-        } catch (FileNotFoundException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        this("/usr/share/hunspell/en_US");
     }
 
     /**
-     * Class constructor of <code>LueckSpeller</code> specifying a custom hunspell dictionary.
-     * @param dictionaryFile path to a *.dic file of a hunspell dictionary.
+     * Class constructor of <code>LueckSpeller</code> specifying a custom hunspell dictionary,
+     * loaded by {@link TrieDictionary} and cached by a {@link CachingDictionary}.
+     * @param dictionaryFile path to a hunspell dictionary without extension.
      */
     public LueckSpeller(String dictionaryFile){
         try {
-            dictionary = Hunspell.getInstance().getDictionary(dictionaryFile);
-        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+            dictionary = new CachingDictionary(new TrieDictionary(dictionaryFile),
+                    DICTIONARY_CACHE_CAPACITY, numberSuggestions);
+        } catch (IOException e) {
             e.printStackTrace();
         }
+
+        MicrosoftAPIRequestor requestor = new MicrosoftAPIRequestor();
+        languageModel = new WebLanguageModel(requestor);
+        wordBreaker = new WebWordBreaker(requestor);
+    }
+
+    /**
+     * Class constructor of <code>LueckSpeller</code> specifying the dictionary, e.g. a
+     * {@link HunspellDictionaryPool} to use the native hunspell library from several
+     * threads, or a {@link HunspellDictionary} for a single thread. Wrap it in a
+     * {@link CachingDictionary} with a cache file, e.g. in <code>./data/log/</code>,
+     * to keep the suggestions for repeated terms across runs.
+     * @param dictionary dictionary to check terms and get suggestions from
+     */
+    public LueckSpeller(SpellingDictionary dictionary){
+        this.dictionary = dictionary;
+        MicrosoftAPIRequestor requestor = new MicrosoftAPIRequestor();
+        languageModel = new WebLanguageModel(requestor);
+        wordBreaker = new WebWordBreaker(requestor);
+    }
+
+    /**
+     * Class constructor of <code>LueckSpeller</code> specifying the dictionary and the
+     * language model scoring the corrections, e.g. an {@link ArpaLanguageModel} to
+     * score them offline.
+     * @param dictionary    dictionary to check terms and get suggestions from
+     * @param languageModel language model to get joint probabilities of corrections from
+     */
+    public LueckSpeller(SpellingDictionary dictionary, LanguageModel languageModel){
+        this(dictionary, languageModel, new WebWordBreaker());
+    }
+
+    /**
+     * Class constructor of <code>LueckSpeller</code> specifying the dictionary, the
+     * language model scoring the corrections and the word breaker adding corrections of
+     * space errors, e.g. a {@link LocalWordSegmenter} to find them offline.
+     * @param dictionary    dictionary to check terms and get suggestions from
+     * @param languageModel language model to get joint probabilities of corrections from
+     * @param wordBreaker   word breaker to get separations of queries with a single correction from
+     */
+    public LueckSpeller(SpellingDictionary dictionary, LanguageModel languageModel, WordBreaker wordBreaker){
+        this.dictionary = dictionary;
+        this.languageModel = languageModel;
+        this.wordBreaker = wordBreaker;
     }
 
     /**
@@ -63,114 +123,341 @@ public class LueckSpeller extends Speller {
      */
     @Override
     public Map<String, Double> spell(String query){
-        List<List<String>> candidates = new ArrayList<>();
-        List<String> corrections = new ArrayList<>();
+        return spellRanked(query).asMap();
+    }
+
+    /**
+     * Gets possible corrections for a given query ranked by their confidences.
+     * @param query string of a query to correct
+     * @return      possible corrections for the query with their calculated
+     *              normalized confidences, ranked by confidence
+     */
+    @Override
+    public RankedCandidates spellRanked(String query){
+        return spellRankedBatch(Collections.singletonList(query)).get(0);
+    }
+
+    /**
+     * Gets possible corrections for several queries.
+     * @param queries   queries to correct
+     * @return          a map of possible corrections and their normalized confidences
+     *                  for each query, in the order of the given queries
+     * @see #spellRankedBatch(List)
+     */
+    @Override
+    public List<Map<String, Double>> spellBatch(List<String> queries){
+        List<Map<String, Double>> spellings = new ArrayList<>(queries.size());
+
+        for(RankedCandidates spelling: spellRankedBatch(queries)){
+            spellings.add(spelling.asMap());
+        }
 
-        generateCandidates(query, candidates);
-        aggregateCandidates(candidates, corrections, 0, "", query.split(" ").length);
+        return spellings;
+    }
+
+    /**
+     * Gets possible corrections for several queries. Hunspell is asked once for each
+     * distinct term and the joint probabilities of all distinct corrections of the
+     * whole batch are looked up concurrently.
+     * @param queries   queries to correct
+     * @return          possible corrections and their normalized confidences for each
+     *                  query, ranked by confidence, in the order of the given queries
+     */
+    @Override
+    public List<RankedCandidates> spellRankedBatch(List<String> queries){
+        Map<String, List<String>> termCandidates = new HashMap<>();
+        Map<String, List<String>> queryCorrections = new LinkedHashMap<>();
+        Set<String> corrections = new LinkedHashSet<>();
 
-        if(corrections.size() == 1)
-            splitPhrases(corrections, query);
+        for(String query: queries){
+            if(!queryCorrections.containsKey(query)){
+                List<String> correctionsOfQuery = generateCorrections(query,
+                        term -> termCandidates.computeIfAbsent(term, this::generateCandidates));
+
+                if(correctionsOfQuery.size() == 1)
+                    splitPhrases(correctionsOfQuery, query);
+
+                queryCorrections.put(query, correctionsOfQuery);
+                corrections.addAll(correctionsOfQuery);
+            }
+        }
 
-        Map<String, Double> scores = normalize(score(corrections, query));
+        Map<String, Double> jointProbabilities;
+
+        try {
+            jointProbabilities = languageModel.getJointProbabilities(corrections).join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+
+        Map<String, RankedCandidates> spellings = new HashMap<>();
+
+        for(Map.Entry<String, List<String>> entry: queryCorrections.entrySet()){
+            spellings.put(entry.getKey(), rank(entry.getKey(), entry.getValue(), jointProbabilities));
+        }
 
-        if(scores.entrySet().iterator().next().getKey().equals(query)){
-            scores.clear();
-            scores.put(query, 1.0);
+        List<RankedCandidates> results = new ArrayList<>(queries.size());
 
-            return scores;
+        for(String query: queries){
+            results.add(spellings.get(query));
         }
 
-        TreeMap<String, Double> sortedScores = new TreeMap<String, Double>(new ValueComparator(scores));
-        sortedScores.putAll(scores);
+        return results;
+    }
+
+    /**
+     * Gets possible corrections for a given query without waiting for remote lookups.
+     * Hunspell suggestions are collected by the calling thread, the word break candidates
+     * and the joint probabilities of all corrections are requested concurrently.
+     * @param query string of a query to correct
+     * @return      future of a map of possible corrections for the query with their
+     *              calculated normalized confidences
+     */
+    @Override
+    public CompletableFuture<Map<String, Double>> spellAsync(String query){
+        List<String> corrections = generateCorrections(query, this::generateCandidates);
+        CompletableFuture<List<String>> allCorrections = CompletableFuture.completedFuture(corrections);
+
+        if(corrections.size() == 1){
+            allCorrections = wordBreaker.getWordBreakCandidatesAsync(query.replaceAll(" ",""), numberSuggestions)
+                    .thenApply(candidates -> {
+                        corrections.addAll(candidates);
+                        return corrections;
+                    });
+        }
+
+        return allCorrections.thenCompose(correctionsOfQuery ->
+                languageModel.getJointProbabilities(correctionsOfQuery).thenApply(jointProbabilities ->
+                        rank(query, correctionsOfQuery, jointProbabilities).asMap()));
+    }
+
+    /**
+     * Gets possible corrections for a given query within a deadline. Hunspell is only asked
+     * for suggestions of terms reached before the deadline, a single call of hunspell isn't
+     * interrupted though. Remote lookups still running at the deadline are left out, they
+     * complete in the background and fill the caches for later queries. The corrections
+     * with a joint probability are ranked, if there aren't any the query is returned
+     * unchanged.
+     * @param query     string of a query to correct
+     * @param timeout   time until the deadline
+     * @param unit      unit of the timeout
+     * @return          the best corrections found before the deadline with their calculated
+     *                  normalized confidences, marked as partial if some were left out
+     */
+    @Override
+    public BoundedSpelling spell(String query, long timeout, TimeUnit unit){
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean[] partial = {false};
+
+        List<String> corrections = generateCorrections(query, term -> {
+            if(System.nanoTime() - deadline < 0){
+                return generateCandidates(term);
+            }
 
+            partial[0] = true;
+            return Collections.singletonList(term);
+        });
 
-        Double sum = sortedScores.values().stream().mapToDouble(Number::doubleValue).sum();
+        if(corrections.size() == 1){
+            List<String> wordBreakCandidates = await(
+                    wordBreaker.getWordBreakCandidatesAsync(query.replaceAll(" ",""), numberSuggestions), deadline);
+
+            if(wordBreakCandidates != null){
+                corrections.addAll(wordBreakCandidates);
+            }
+            else{
+                partial[0] = true;
+            }
+        }
+
+        Map<String, CompletableFuture<Double>> requests = new LinkedHashMap<>();
+
+        for(String correction: corrections){
+            requests.computeIfAbsent(correction, languageModel::getJointProbabilityAsync);
+        }
+
+        await(CompletableFuture.allOf(requests.values().toArray(new CompletableFuture<?>[0])), deadline);
+
+        Map<String, Double> jointProbabilities = new HashMap<>();
+        List<String> scoredCorrections = new ArrayList<>();
+
+        for(Map.Entry<String, CompletableFuture<Double>> request: requests.entrySet()){
+            if(request.getValue().isDone() && !request.getValue().isCompletedExceptionally()){
+                jointProbabilities.put(request.getKey(), request.getValue().join());
+                scoredCorrections.add(request.getKey());
+            }
+            else{
+                partial[0] = true;
+            }
+        }
+
+        if(scoredCorrections.isEmpty()){
+            return new BoundedSpelling(RankedCandidates.of(query, 1.0), true);
+        }
+
+        return new BoundedSpelling(rank(query, scoredCorrections, jointProbabilities), partial[0]);
+    }
+
+    /**
+     * Waits for a future until the deadline.
+     * @return result of the future or null if it isn't done before the deadline
+     */
+    private static <T> T await(CompletableFuture<T> future, long deadline){
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private List<String> generateCorrections(String query, Function<String, List<String>> termCandidates){
+        List<List<String>> candidates = new ArrayList<>();
+        List<String> corrections = new ArrayList<>();
+
+        double[][] costs = generateCandidates(query, candidates, termCandidates);
+        new CandidateEnumerator(candidates, costs, query.split(" ").length, maxCorrections)
+                .forEachRemaining(corrections::add);
+
+        return corrections;
+    }
+
+    private RankedCandidates rank(String query, List<String> corrections, Map<String, Double> jointProbabilities){
+        RankedCandidates scores = score(corrections, query, jointProbabilities).normalize();
+
+        if(query.equals(scores.getTopCandidate())){
+            return RankedCandidates.of(query, 1.0);
+        }
+
+        double sum = 0.0;
+
+        for(int i = 0; i < scores.size(); i++){
+            sum += scores.getConfidence(i);
+        }
 
         if(sum < 0.95){
-            System.out.println(sum +": "+sortedScores);
+            System.out.println(sum +": "+scores);
         }
 
-        return new LinkedHashMap<>(sortedScores);
+        return scores;
     }
 
     /**
-     * Flushes gathered data to disk.
+     * Flushes gathered data to disk, e.g. the logs of the APIs and the cached suggestions
+     * of the dictionary. The speller stays usable.
      */
     @Override
     public void flush() {
-        close();
+        languageModel.flush();
+        wordBreaker.flush();
+
+        if(dictionary != null){
+            dictionary.flush();
+        }
     }
 
     /**
-     * Flushes data to disk and closes the logs.
+     * Flushes data to disk, closes the logs and releases the dictionary.
      * Needs to get called before closing application to keep data in consistent state!
      */
     @Override
     public void close() {
-        requestor.close();
+        languageModel.close();
+        wordBreaker.close();
+
+        if(dictionary != null){
+            dictionary.close();
+        }
     }
 
     private void splitPhrases(List<String> corrections, String query){
         corrections.addAll(
-                requestor.getWordBreakCandidates(
+                wordBreaker.getWordBreakCandidates(
                         query.replaceAll(" ",""), numberSuggestions)
         );
     }
 
-    private void generateCandidates(String query, List<List<String>> candidates){
+    /**
+     * Collects the original term and the best hunspell suggestions for each term of the query.
+     * @param termCandidates function getting the candidates of a term
+     * @return cost of each candidate: 0 for the original term, 1 + rank for suggestions
+     */
+    private double[][] generateCandidates(String query, List<List<String>> candidates,
+                                          Function<String, List<String>> termCandidates){
         String[] terms = query.split("[ ]+");
-        List<String> suggestions;
-
-        for(String term: terms){
-            if(dictionary.misspelled(term)){
-                suggestions = dictionary.suggest(term);
+        double[][] costs = new double[terms.length][];
 
-                if(suggestions.size() > this.numberSuggestions){
-                    suggestions = new ArrayList<>(suggestions.subList(0, this.numberSuggestions));
-                }
-                else{
-                    suggestions = new ArrayList<>(suggestions);
-                }
+        for(int i = 0; i < terms.length; i++){
+            candidates.add(termCandidates.apply(terms[i]));
 
-                suggestions.add(term);
+            costs[i] = new double[candidates.get(i).size()];
 
-                candidates.add(suggestions);
-            }
-            else{
-                candidates.add(Collections.singletonList(term));
+            for(int j = 0; j < costs[i].length - 1; j++){
+                costs[i][j] = 1 + j;
             }
         }
+
+        return costs;
     }
 
-    private Map<String, Double> score(List<String> corrections, String query){
-        Map<String, Double> scores = new HashMap<>();
-        Double jointProbability;
-        Integer levenshteinDistance;
-        Double logarithmicProbability;
+    private List<String> generateCandidates(String term){
+        List<String> suggestions;
+        boolean misspelled;
+
+        misspelled = dictionary.misspelled(term);
+        suggestions = misspelled ? dictionary.suggest(term) : null;
 
-        Double maxProbability = Double.MIN_VALUE;
+        if(!misspelled){
+            return Collections.singletonList(term);
+        }
 
-        for(String correction: corrections){
-            jointProbability = requestor.getJointProbability(correction);
+        if(suggestions.size() > this.numberSuggestions){
+            suggestions = new ArrayList<>(suggestions.subList(0, this.numberSuggestions));
+        }
+        else{
+            suggestions = new ArrayList<>(suggestions);
+        }
 
-            levenshteinDistance = StringUtils.getLevenshteinDistance(query, correction);
-            logarithmicProbability = jointProbability - (errorRate * levenshteinDistance) / (query.length());
+        suggestions.add(term);
 
-            if(Math.exp(logarithmicProbability) > maxProbability){
-                maxProbability = Math.exp(logarithmicProbability);
-            }
+        return suggestions;
+    }
+
+    private RankedCandidates score(List<String> corrections, String query, Map<String, Double> jointProbabilities){
+        String[] candidates = new LinkedHashSet<>(corrections).toArray(new String[0]);
+        double[] scores = new double[candidates.length];
+        int levenshteinDistance;
 
-            scores.putIfAbsent(correction, logarithmicProbability);
+        double maxProbability = Double.MIN_VALUE;
+
+        for(int i = 0; i < candidates.length; i++){
+            levenshteinDistance = EditDistance.levenshtein(query, candidates[i]);
+            scores[i] = jointProbabilities.get(candidates[i]) - (errorRate * levenshteinDistance) / (query.length());
+
+            if(Math.exp(scores[i]) > maxProbability){
+                maxProbability = Math.exp(scores[i]);
+            }
         }
 
-        for(Map.Entry<String, Double> entry: scores.entrySet()){
-            if(Math.exp(entry.getValue()) * 10.0 < maxProbability){
-                entry.setValue(Math.pow(10, -15));
+        for(int i = 0; i < scores.length; i++){
+            if(Math.exp(scores[i]) * 10.0 < maxProbability){
+                scores[i] = Math.pow(10, -15);
             }
         }
 
-        return scores;
+        return new RankedCandidates(candidates, scores);
     }
 
     public static void main(String[] args) {
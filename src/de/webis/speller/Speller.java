@@ -1,18 +1,147 @@
 package de.webis.speller;
 
+import de.webis.datastructures.BoundedSpelling;
+import de.webis.datastructures.RankedCandidates;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
 
 /**
  * An adaptable base class for spell algorithms.
  */
 public abstract class Speller {
+    private static ExecutorService asyncExecutor;
+
     public abstract String getSpellTag();
 
     public abstract Map<String, Double> spell(String query);
 
+    /**
+     * Gets possible corrections for several queries at once. Spellers may share lookups
+     * between the queries of a batch, by default the queries are spelled one by one.
+     * @param queries   queries to correct
+     * @return          a map of possible corrections and their confidences for each
+     *                  query, in the order of the given queries
+     */
+    public List<Map<String, Double>> spellBatch(List<String> queries){
+        List<Map<String, Double>> spellings = new ArrayList<>(queries.size());
+
+        for(String query: queries){
+            spellings.add(spell(query));
+        }
+
+        return spellings;
+    }
+
+    /**
+     * Gets possible corrections for a given query within a deadline. By default the result
+     * of {@link #spellAsync(String)} is awaited until the deadline, if it isn't done by then
+     * it gets cancelled and the query is returned unchanged as partial result. Spellers able
+     * to rank incomplete candidates should override this.
+     * @param query     string of a query to correct
+     * @param timeout   time until the deadline
+     * @param unit      unit of the timeout
+     * @return          the best corrections found before the deadline, marked as partial
+     *                  if the speller didn't finish in time
+     */
+    public BoundedSpelling spell(String query, long timeout, TimeUnit unit){
+        CompletableFuture<Map<String, Double>> spelling = spellAsync(query);
+
+        try {
+            return new BoundedSpelling(RankedCandidates.fromMap(spelling.get(timeout, unit)), false);
+        } catch (TimeoutException e) {
+            spelling.cancel(true);
+            return new BoundedSpelling(RankedCandidates.of(query, 1.0), true);
+        } catch (InterruptedException e) {
+            spelling.cancel(true);
+            Thread.currentThread().interrupt();
+            return new BoundedSpelling(RankedCandidates.of(query, 1.0), true);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Gets possible corrections for a given query ranked by their confidences. By default
+     * the result of {@link #spell(String)} gets ranked, spellers may build it directly.
+     * @param query string of a query to correct
+     * @return      possible corrections and their confidences, ranked by confidence
+     */
+    public RankedCandidates spellRanked(String query){
+        return RankedCandidates.fromMap(spell(query));
+    }
+
+    /**
+     * Gets possible corrections for several queries at once, ranked by their confidences.
+     * By default the results of {@link #spellBatch(List)} get ranked.
+     * @param queries   queries to correct
+     * @return          possible corrections and their confidences for each query, ranked
+     *                  by confidence, in the order of the given queries
+     */
+    public List<RankedCandidates> spellRankedBatch(List<String> queries){
+        List<RankedCandidates> spellings = new ArrayList<>(queries.size());
+
+        for(Map<String, Double> spelling: spellBatch(queries)){
+            spellings.add(RankedCandidates.fromMap(spelling));
+        }
+
+        return spellings;
+    }
+
+    /**
+     * Gets possible corrections for a given query without blocking the calling thread.
+     * By default the query is spelled by {@link #spell(String)} in a pool of spelling
+     * threads shared by all spellers, one per processor, so blocking spellers don't starve
+     * the common fork join pool. Cancelling the future cancels the spelling, interrupting
+     * it if it's running. Spellers waiting on remote lookups should override this.
+     * @param query string of a query to correct
+     * @return      future of a map of possible corrections and their confidences
+     */
+    public CompletableFuture<Map<String, Double>> spellAsync(String query){
+        CompletableFuture<Map<String, Double>> spelling = new CompletableFuture<>();
+
+        Future<?> task = getAsyncExecutor().submit(() -> {
+            try {
+                spelling.complete(spell(query));
+            } catch (Throwable e) {
+                spelling.completeExceptionally(e);
+            }
+        });
+
+        spelling.whenComplete((result, e) -> {
+            if(spelling.isCancelled()){
+                task.cancel(true);
+            }
+        });
+
+        return spelling;
+    }
+
+    private static synchronized ExecutorService getAsyncExecutor(){
+        if(asyncExecutor == null){
+            // daemon threads don't keep the application alive
+            asyncExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "speller-async");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return asyncExecutor;
+    }
+
     /**
      * Builds all possible combinations of corrections for each word of a query.
+     * The number of combinations grows exponentially with the number of terms having
+     * several corrections, use {@link CandidateEnumerator} to get a bounded number of
+     * the best combinations instead.
      * @param candidates possible corrections for each word of a query such that
      *                   its index matches the position of this word in a query
      * @param results    list of resulting combinations
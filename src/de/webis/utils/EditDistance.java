@@ -0,0 +1,288 @@
+package de.webis.utils;
+
+/**
+ * Class for edit distances between strings. If the shorter string has at most 64
+ * characters, the distances are computed by the bit-parallel algorithms of Myers and
+ * Hyyrö, which process a whole column of the distance matrix per character of the longer
+ * string, otherwise by dynamic programming over two or three rows. Buffers are reused per
+ * thread, so computing a distance doesn't allocate memory. A bound lets the computation
+ * stop as soon as the distance is known to exceed it.
+ */
+public class EditDistance {
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Get the Levenshtein distance of two strings, the min. number of insertions,
+     * deletions and substitutions of characters turning one into the other.
+     * @param first  first string
+     * @param second second string
+     * @return       Levenshtein distance
+     */
+    public static int levenshtein(CharSequence first, CharSequence second){
+        return distance(first, second, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Get the Levenshtein distance of two strings if it doesn't exceed a bound.
+     * @param first  first string
+     * @param second second string
+     * @param bound  max. distance of interest
+     * @return       Levenshtein distance or -1 if it exceeds the bound
+     */
+    public static int levenshtein(CharSequence first, CharSequence second, int bound){
+        return distance(first, second, bound, false);
+    }
+
+    /**
+     * Get the Damerau distance of two strings, the min. number of insertions, deletions
+     * and substitutions of characters and transpositions of adjacent characters turning one
+     * into the other, where no substring is edited more than once (optimal string alignment).
+     * @param first  first string
+     * @param second second string
+     * @return       Damerau distance
+     */
+    public static int damerau(CharSequence first, CharSequence second){
+        return distance(first, second, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Get the Damerau distance of two strings if it doesn't exceed a bound.
+     * @param first  first string
+     * @param second second string
+     * @param bound  max. distance of interest
+     * @return       Damerau distance or -1 if it exceeds the bound
+     * @see #damerau(CharSequence, CharSequence)
+     */
+    public static int damerau(CharSequence first, CharSequence second, int bound){
+        return distance(first, second, bound, true);
+    }
+
+    private static int distance(CharSequence first, CharSequence second, int bound, boolean transpositions){
+        if(bound < 0){
+            throw new IllegalArgumentException("Bound must not be negative: "+bound);
+        }
+
+        // the shorter string is the pattern, so it fits into a single word more often
+        CharSequence pattern = first.length() <= second.length() ? first : second;
+        CharSequence text = pattern == first ? second : first;
+
+        if(text.length() - pattern.length() > bound){
+            return -1;
+        }
+
+        if(pattern.length() == 0){
+            return text.length();
+        }
+
+        Buffers buffers = BUFFERS.get();
+
+        if(pattern.length() <= 64){
+            buffers.setPattern(pattern);
+
+            try {
+                return transpositions ? bitParallelDamerau(pattern, text, bound, buffers)
+                        : bitParallelLevenshtein(pattern, text, bound, buffers);
+            } finally {
+                buffers.clearPattern(pattern);
+            }
+        }
+
+        return dynamicProgramming(pattern, text, bound, transpositions, buffers);
+    }
+
+    /**
+     * Myers' algorithm as formulated by Hyyrö. The bit vectors encode the vertical
+     * differences of the current column, the score is tracked in the last row.
+     */
+    private static int bitParallelLevenshtein(CharSequence pattern, CharSequence text, int bound, Buffers buffers){
+        long lastBit = 1L << (pattern.length() - 1);
+        long vp = -1L;
+        long vn = 0L;
+        int score = pattern.length();
+
+        for(int j = 0; j < text.length(); j++){
+            long eq = buffers.getMask(text.charAt(j));
+            long xv = eq | vn;
+            long xh = (((eq & vp) + vp) ^ vp) | eq;
+            long hp = vn | ~(xh | vp);
+            long hn = vp & xh;
+
+            if((hp & lastBit) != 0){
+                score++;
+            }
+            else if((hn & lastBit) != 0){
+                score--;
+            }
+
+            // the remaining characters can lower the score by at most one each
+            if(score - (text.length() - j - 1) > bound){
+                return -1;
+            }
+
+            hp = (hp << 1) | 1L;
+            hn <<= 1;
+            vp = hn | ~(xv | hp);
+            vn = hp & xv;
+        }
+
+        return score <= bound ? score : -1;
+    }
+
+    /**
+     * Hyyrö's extension of Myers' algorithm to transpositions of adjacent characters.
+     */
+    private static int bitParallelDamerau(CharSequence pattern, CharSequence text, int bound, Buffers buffers){
+        long lastBit = 1L << (pattern.length() - 1);
+        long vp = -1L;
+        long vn = 0L;
+        long d0 = 0L;
+        long previousEq = 0L;
+        int score = pattern.length();
+
+        for(int j = 0; j < text.length(); j++){
+            long eq = buffers.getMask(text.charAt(j));
+            long tr = ((~d0 & eq) << 1) & previousEq;
+            d0 = (((eq & vp) + vp) ^ vp) | eq | vn | tr;
+            long hp = vn | ~(d0 | vp);
+            long hn = d0 & vp;
+
+            if((hp & lastBit) != 0){
+                score++;
+            }
+            else if((hn & lastBit) != 0){
+                score--;
+            }
+
+            if(score - (text.length() - j - 1) > bound){
+                return -1;
+            }
+
+            hp = (hp << 1) | 1L;
+            hn <<= 1;
+            vp = hn | ~(d0 | hp);
+            vn = hp & d0;
+            previousEq = eq;
+        }
+
+        return score <= bound ? score : -1;
+    }
+
+    /**
+     * Row-wise dynamic programming for patterns longer than a word.
+     */
+    private static int dynamicProgramming(CharSequence pattern, CharSequence text, int bound, boolean transpositions,
+                                          Buffers buffers){
+        int[] beforePrevious = buffers.getRow(0, pattern.length() + 1);
+        int[] previous = buffers.getRow(1, pattern.length() + 1);
+        int[] current = buffers.getRow(2, pattern.length() + 1);
+
+        for(int i = 0; i <= pattern.length(); i++){
+            previous[i] = i;
+        }
+
+        for(int j = 1; j <= text.length(); j++){
+            char c = text.charAt(j - 1);
+            int min = current[0] = j;
+
+            for(int i = 1; i <= pattern.length(); i++){
+                int cost = pattern.charAt(i - 1) == c ? 0 : 1;
+                int distance = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+
+                if(transpositions && i > 1 && j > 1 && pattern.charAt(i - 1) == text.charAt(j - 2)
+                        && pattern.charAt(i - 2) == c){
+                    distance = Math.min(distance, beforePrevious[i - 2] + 1);
+                }
+
+                current[i] = distance;
+                min = Math.min(min, distance);
+            }
+
+            if(min > bound){
+                return -1;
+            }
+
+            int[] row = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = row;
+        }
+
+        int distance = previous[pattern.length()];
+
+        return distance <= bound ? distance : -1;
+    }
+
+    /**
+     * Buffers of a single thread: the match masks of the pattern characters, in a table for
+     * characters below 256 and a short list for the others, and the rows of the matrix.
+     */
+    private static class Buffers {
+        private final long[] asciiMasks = new long[256];
+        private final char[] otherChars = new char[64];
+        private final long[] otherMasks = new long[64];
+        private int numOthers;
+
+        private final int[][] rows = new int[3][0];
+
+        private void setPattern(CharSequence pattern){
+            for(int i = 0; i < pattern.length(); i++){
+                char c = pattern.charAt(i);
+
+                if(c < 256){
+                    asciiMasks[c] |= 1L << i;
+                    continue;
+                }
+
+                int k = indexOf(c);
+
+                if(k < 0){
+                    k = numOthers++;
+                    otherChars[k] = c;
+                    otherMasks[k] = 0L;
+                }
+
+                otherMasks[k] |= 1L << i;
+            }
+        }
+
+        private void clearPattern(CharSequence pattern){
+            for(int i = 0; i < pattern.length(); i++){
+                char c = pattern.charAt(i);
+
+                if(c < 256){
+                    asciiMasks[c] = 0L;
+                }
+            }
+
+            numOthers = 0;
+        }
+
+        private long getMask(char c){
+            if(c < 256){
+                return asciiMasks[c];
+            }
+
+            int k = indexOf(c);
+
+            return k < 0 ? 0L : otherMasks[k];
+        }
+
+        private int indexOf(char c){
+            for(int k = 0; k < numOthers; k++){
+                if(otherChars[k] == c){
+                    return k;
+                }
+            }
+
+            return -1;
+        }
+
+        private int[] getRow(int index, int length){
+            if(rows[index].length < length){
+                rows[index] = new int[Math.max(length, 2 * rows[index].length)];
+            }
+
+            return rows[index];
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package de.webis.utils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Port of <code>utils/assign-error-types.py</code>, annotating each spelling variant of a
+ * corpus with the number of errors of each type, as read by
+ * {@link de.webis.parser.ErrorAnnotationParser}. The counts equal those of the script:
+ * differences in spaces and runs of special characters, and the insertions, deletions,
+ * substitutions and transpositions along the backtrace of a Damerau-Levenshtein matrix of
+ * the strings without spaces and special characters.
+ * <p>
+ * The corpus is read in blocks of lines, which are annotated in parallel while the next
+ * block is read, and written in the order of the corpus. Files are read and written as
+ * ISO-8859-1 like the script reads them, so the strings are copied byte by byte.
+ */
+public class ErrorAnnotator {
+    private static final int BLOCK_SIZE = 10000;
+    private static final int MAX_COLUMNS = 9;
+    private static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+    private static final String DELIMITER = ";";
+
+    /**
+     * Header of the error annotation file
+     */
+    public static final String HEADER = "ID;String with mistake(s);Possible Correction;"
+            + "Spaces;Special Characters;Insertion;Deletion;Substitution;Transposition";
+
+    private static final Pattern SPECIAL_CHARACTER_RUNS = Pattern.compile("['\\-_|.:/!?$%()+#\"&]+");
+    private static final String SPECIAL_CHARACTERS = "'-_.:/!?$%()+#\"&";
+
+    private static final ThreadLocal<int[]> MATRIX = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * Annotate all spelling variants of a corpus. Each line of the corpus consists of an id,
+     * a query and up to 7 spelling variants, separated by tabs or semicolons.
+     * @param corpusPath     location of the corpus
+     * @param annotationPath location of the error annotation file to write
+     * @param numThreads     number of threads annotating the spelling variants
+     * @throws IOException   if the corpus can't be read or the annotations can't be written
+     */
+    public static void annotate(String corpusPath, String annotationPath, int numThreads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(corpusPath), CHARSET);
+             BufferedWriter writer = Files.newBufferedWriter(Paths.get(annotationPath), CHARSET)) {
+            writer.write(HEADER+"\n");
+
+            List<String> block = new ArrayList<>(BLOCK_SIZE);
+            Future<List<String>> pending = null;
+
+            for(String line; (line = reader.readLine()) != null; ){
+                block.add(line);
+
+                if(block.size() == BLOCK_SIZE){
+                    Future<List<String>> annotated = submit(block, pool);
+                    write(pending, writer);
+
+                    pending = annotated;
+                    block = new ArrayList<>(BLOCK_SIZE);
+                }
+            }
+
+            Future<List<String>> annotated = submit(block, pool);
+            write(pending, writer);
+            write(annotated, writer);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Get the location of the error annotation file the script writes for a corpus.
+     * @param corpusPath location of the corpus
+     * @return           location of the error annotation file
+     */
+    public static String getAnnotationPath(String corpusPath){
+        return corpusPath.replace(".csv", "")+"-error-annotation.csv";
+    }
+
+    /**
+     * Get the annotation lines of a single corpus line, one per non-empty spelling variant.
+     * @param line line of the corpus
+     * @return     annotation lines, each terminated by a line break
+     */
+    public static String annotateLine(String line){
+        String[] split = stripTrailingTabs(line).split("[\t;]", -1);
+        StringBuilder builder = new StringBuilder();
+
+        if(split.length < 2){
+            return "";
+        }
+
+        for(int i = 2; i < Math.min(split.length, MAX_COLUMNS); i++){
+            if(split[i].isEmpty()){
+                continue;
+            }
+
+            builder.append(split[0]).append(DELIMITER).append(split[1]).append(DELIMITER).append(split[i]);
+
+            for(int count: getErrorTypeCounts(split[1], split[i])){
+                builder.append(DELIMITER).append(count);
+            }
+
+            builder.append("\n");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get the number of errors of each type between a query and one of its spelling variants.
+     * @param mistake    query with mistakes
+     * @param correction spelling variant of the query
+     * @return           number of errors in the order of
+     *                   {@link de.webis.parser.ErrorAnnotationParser#ERROR_TYPES}
+     */
+    public static int[] getErrorTypeCounts(String mistake, String correction){
+        int[] counts = new int[6];
+
+        counts[0] = Math.abs(count(correction, ' ') - count(mistake, ' '));
+
+        String cleanCorrection = correction.replace(" ", "");
+        String cleanMistake = mistake.replace(" ", "");
+
+        counts[1] = Math.abs(countSpecialCharacterRuns(cleanCorrection) - countSpecialCharacterRuns(cleanMistake));
+
+        countEditOperations(removeSpecialCharacters(cleanCorrection), removeSpecialCharacters(cleanMistake), counts);
+
+        return counts;
+    }
+
+    /**
+     * Fills the Damerau-Levenshtein matrix of the script and counts the operations along its
+     * backtrace into <code>counts[2..5]</code>. Row and column 0 of the matrix correspond to
+     * the index -1 of the script. Like in the script, a transposition costs as much as a
+     * substitution of its last characters, and the backtrace stops at a cell none of its
+     * rules applies to.
+     */
+    private static void countEditOperations(String s1, String s2, int[] counts){
+        int n = s1.length();
+        int m = s2.length();
+        int width = m + 1;
+        int[] d = getMatrix((n + 1) * width);
+
+        for(int a = 0; a <= n; a++){
+            d[a * width] = a;
+        }
+
+        for(int b = 0; b <= m; b++){
+            d[b] = b;
+        }
+
+        for(int a = 1; a <= n; a++){
+            for(int b = 1; b <= m; b++){
+                int cost = s1.charAt(a - 1) == s2.charAt(b - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(d[(a - 1) * width + b] + 1, d[a * width + b - 1] + 1),
+                        d[(a - 1) * width + b - 1] + cost);
+
+                if(a > 1 && b > 1 && s1.charAt(a - 1) == s2.charAt(b - 2) && s1.charAt(a - 2) == s2.charAt(b - 1)){
+                    distance = Math.min(distance, d[(a - 2) * width + b - 2] + cost);
+                }
+
+                d[a * width + b] = distance;
+            }
+        }
+
+        int a = n;
+        int b = m;
+
+        while(true){
+            int distance = d[a * width + b];
+
+            if(a > 0 && d[(a - 1) * width + b] + 1 == distance){
+                counts[3]++;
+                a--;
+            }
+            else if(b > 0 && d[a * width + b - 1] + 1 == distance){
+                counts[2]++;
+                b--;
+            }
+            else if(a > 0 && b > 0 && d[(a - 1) * width + b - 1] + 1 == distance && a < n && b < m
+                    && s1.charAt(a - 1) == s2.charAt(b) && s1.charAt(a) == s2.charAt(b - 1)){
+                counts[5]++;
+                a--;
+                b--;
+            }
+            else if(a > 0 && b > 0 && d[(a - 1) * width + b - 1] + 1 == distance){
+                counts[4]++;
+                a--;
+                b--;
+            }
+            else if(a > 0 && b > 0 && d[(a - 1) * width + b - 1] == distance){
+                a--;
+                b--;
+            }
+            else{
+                break;
+            }
+        }
+    }
+
+    private static Future<List<String>> submit(List<String> block, ForkJoinPool pool){
+        return pool.submit(() -> block.parallelStream()
+                .map(ErrorAnnotator::annotateLine)
+                .collect(Collectors.toList()));
+    }
+
+    private static void write(Future<List<String>> annotated, Writer writer) throws IOException {
+        if(annotated == null){
+            return;
+        }
+
+        try {
+            for(String annotation: annotated.get()){
+                writer.write(annotation);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static int[] getMatrix(int size){
+        int[] matrix = MATRIX.get();
+
+        if(matrix.length < size){
+            matrix = new int[Math.max(size, 2 * matrix.length)];
+            MATRIX.set(matrix);
+        }
+
+        return matrix;
+    }
+
+    private static String stripTrailingTabs(String line){
+        int end = line.length();
+
+        while(end > 0 && line.charAt(end - 1) == '\t'){
+            end--;
+        }
+
+        return line.substring(0, end);
+    }
+
+    private static int count(String string, char c){
+        int count = 0;
+
+        for(int i = 0; i < string.length(); i++){
+            if(string.charAt(i) == c){
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int countSpecialCharacterRuns(String string){
+        Matcher matcher = SPECIAL_CHARACTER_RUNS.matcher(string);
+        int count = 0;
+
+        while(matcher.find()){
+            count++;
+        }
+
+        return count;
+    }
+
+    private static String removeSpecialCharacters(String string){
+        StringBuilder builder = new StringBuilder(string.length());
+
+        for(int i = 0; i < string.length(); i++){
+            if(SPECIAL_CHARACTERS.indexOf(string.charAt(i)) < 0){
+                builder.append(string.charAt(i));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Annotate a corpus like <code>utils/assign-error-types.py</code>.
+     * @param args location of the corpus and optionally the number of threads
+     *             (default: number of processors)
+     */
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.err.println("Usage: ErrorAnnotator <corpus file> [threads]");
+            return;
+        }
+
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String annotationPath = getAnnotationPath(args[0]);
+
+        long start = System.nanoTime();
+
+        try {
+            annotate(args[0], annotationPath, numThreads);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        System.out.println("Annotated "+args[0]+" in "+(System.nanoTime() - start) / 1000000+" ms: "+annotationPath);
+    }
+}
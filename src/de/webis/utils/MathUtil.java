@@ -12,6 +12,10 @@ public class MathUtil {
     }
 
     public static double roundDouble(double value, int places){
+        if(Double.isNaN(value) || Double.isInfinite(value)){
+            return value;
+        }
+
         BigDecimal bd = new BigDecimal(value);
         bd = bd.setScale(places, RoundingMode.HALF_UP);
 